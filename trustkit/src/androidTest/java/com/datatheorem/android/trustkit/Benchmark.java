@@ -0,0 +1,19 @@
+package com.datatheorem.android.trustkit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks tests that only measure performance and write their results to logcat. They are excluded
+ * from the default instrumentation run; run them with:
+ *
+ * <pre>
+ * ./gradlew :trustkit:connectedAndroidTest -PrunBenchmarks \
+ *     -Pandroid.testInstrumentationRunnerArguments.annotation=com.datatheorem.android.trustkit.Benchmark
+ * </pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Benchmark {}
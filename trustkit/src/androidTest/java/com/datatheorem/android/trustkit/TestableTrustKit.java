@@ -28,6 +28,15 @@ public class TestableTrustKit extends TrustKit {
         return TrustKit.getInstance();
     }
 
+    public static TrustKit initializeWithNetworkSecurityConfiguration(
+            @NonNull Context context,
+            @NonNull TrustKitOptions options,
+            BackgroundReporter reporter) {
+        TrustKit.initializeWithNetworkSecurityConfiguration(context, options);
+        TestableTrustManagerBuilder.setReporter(reporter);
+        return TrustKit.getInstance();
+    }
+
     // This lets us directly specify domain settings without parsing an XML file and inject/mock
     // the background reporter
     public static void init(
@@ -1,6 +1,10 @@
 package com.datatheorem.android.trustkit;
 
+import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 
 import android.content.Context;
@@ -10,6 +14,11 @@ import androidx.test.platform.app.InstrumentationRegistry;
 import com.datatheorem.android.trustkit.config.ConfigurationException;
 import com.datatheorem.android.trustkit.config.DomainPinningPolicy;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import javax.net.ssl.SSLSocketFactory;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -131,4 +140,64 @@ public class TrustKitTest {
         }
         assertTrue(didInitFail);
     }
+
+    @Test
+    public void testSSLSocketFactoryIsReused() {
+        Context context = InstrumentationRegistry.getInstrumentation().getContext();
+        TrustKit trustkit = TrustKit.initializeWithNetworkSecurityConfiguration(context);
+
+        // Pinned hostnames each get their own factory
+        SSLSocketFactory pinnedFactory = trustkit.getSSLSocketFactory("www.datatheorem.com");
+        assertSame(pinnedFactory, trustkit.getSSLSocketFactory("www.datatheorem.com"));
+        assertSame(pinnedFactory, trustkit.getSSLSocketFactory("WWW.DataTheorem.com."));
+        assertNotSame(pinnedFactory, trustkit.getSSLSocketFactory("www.github.com"));
+
+        // Hostnames that are not pinned all share the same factory
+        SSLSocketFactory unpinnedFactory = trustkit.getSSLSocketFactory("www.google.com");
+        assertNotSame(pinnedFactory, unpinnedFactory);
+        assertSame(unpinnedFactory, trustkit.getSSLSocketFactory("www.example.com"));
+    }
+
+    @Test
+    public void testPrewarm() throws InterruptedException {
+        Context context = InstrumentationRegistry.getInstrumentation().getContext();
+        final TrustKit trustkit = TrustKit.initializeWithNetworkSecurityConfiguration(context);
+
+        // The work is done on the supplied executor
+        final List<Runnable> tasks = new ArrayList<>();
+        trustkit.prewarm(
+                Arrays.asList("https://invalid", "www.datatheorem.com", "www.google.com"),
+                new Executor() {
+                    @Override
+                    public void execute(Runnable task) {
+                        tasks.add(task);
+                    }
+                });
+        assertEquals(1, tasks.size());
+        assertNull(trustkit.getCachedSSLSocketFactory("www.datatheorem.com"));
+
+        // Run it from a background thread; an invalid hostname does not stop the others
+        final List<Throwable> errors = new ArrayList<>();
+        Thread thread =
+                new Thread(
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    tasks.get(0).run();
+                                } catch (Throwable t) {
+                                    errors.add(t);
+                                }
+                            }
+                        });
+        thread.start();
+        thread.join();
+        assertTrue(errors.isEmpty());
+
+        // The factory of the pinned hostname was built, and gets returned instead of a new one
+        SSLSocketFactory prewarmedFactory =
+                trustkit.getCachedSSLSocketFactory("www.datatheorem.com");
+        assertNotNull(prewarmedFactory);
+        assertSame(prewarmedFactory, trustkit.getSSLSocketFactory("www.datatheorem.com"));
+    }
 }
@@ -0,0 +1,59 @@
+package com.datatheorem.android.trustkit.config;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import java.net.MalformedURLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+public class CompiledPolicyIndexTest {
+
+    @Test
+    public void testSnapshotIsImmutable() throws MalformedURLException {
+        DomainPinningPolicy policy = DomainPolicyTrieTest.newPolicy("test.com", true);
+        Set<DomainPinningPolicy> policies = new HashSet<>(Arrays.asList(policy));
+        TrustKitConfiguration config = new TestableTrustKitConfiguration(policies);
+        CompiledPolicyIndex policyIndex = config.getPolicyIndex();
+
+        // Changing the set the configuration was created with does not affect the snapshot
+        policies.add(DomainPolicyTrieTest.newPolicy("other.com", true));
+        assertEquals(1, policyIndex.getAllPolicies().size());
+        assertNull(policyIndex.getPolicyForHostname("www.other.com"));
+        assertSame(policy, policyIndex.getPolicyForHostname("www.test.com"));
+        assertSame(policyIndex.getAllPolicies(), config.getAllPolicies());
+
+        boolean didThrow = false;
+        try {
+            config.getAllPolicies().clear();
+        } catch (UnsupportedOperationException e) {
+            didThrow = true;
+        }
+        assertTrue(didThrow);
+    }
+
+    @Test
+    public void testPeerHostnameIsNotValidated() throws MalformedURLException {
+        DomainPinningPolicy policy = DomainPolicyTrieTest.newPolicy("test.com", true);
+        CompiledPolicyIndex policyIndex =
+                new TestableTrustKitConfiguration(new HashSet<>(Arrays.asList(policy)))
+                        .getPolicyIndex();
+
+        // Labels with an underscore are not valid in a domain name, but some servers use them
+        boolean didThrow = false;
+        try {
+            policyIndex.getPolicyForHostname("my_api.test.com");
+        } catch (IllegalArgumentException e) {
+            didThrow = true;
+        }
+        assertTrue(didThrow);
+        assertSame(policy, policyIndex.getPolicyForPeerHostname("my_api.test.com"));
+        assertSame(policy, policyIndex.getPolicyForPeerHostname("www.test.com"));
+        assertNull(policyIndex.getPolicyForPeerHostname("my_api.other.com"));
+        assertNull(policyIndex.getPolicyForPeerHostname("10.0.0.1"));
+    }
+}
@@ -0,0 +1,73 @@
+package com.datatheorem.android.trustkit.config;
+
+import static junit.framework.Assert.assertSame;
+
+import android.util.Log;
+import com.datatheorem.android.trustkit.Benchmark;
+import java.net.MalformedURLException;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ * Measures the cost of creating a pinning configuration when the App starts, and how much of it
+ * comes from building the TLD tables, which only happens the first time a TLD gets checked. The
+ * first creation is only cold if no other test used {@link DomainValidator} earlier in the process.
+ * Results are written to logcat.
+ */
+@Benchmark
+public class ConfigurationStartupBenchmark {
+
+    private static final int POLICY_COUNT = 20;
+    private static final int ITERATIONS = 100;
+
+    @Test
+    public void benchmarkConfigurationCreation() throws MalformedURLException {
+        long start = System.nanoTime();
+        TrustKitConfiguration config = newConfiguration();
+        long firstDuration = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            config = newConfiguration();
+        }
+        long warmDuration = (System.nanoTime() - start) / ITERATIONS;
+
+        // The cost of building the TLD tables, which the first creation paid for if it was cold
+        String[][] tldLists = {
+            BuiltInTldTables.GENERIC_TLDS.toArray(),
+            BuiltInTldTables.COUNTRY_CODE_TLDS.toArray(),
+            BuiltInTldTables.INFRASTRUCTURE_TLDS.toArray(),
+            BuiltInTldTables.LOCAL_TLDS.toArray()
+        };
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (String[] tldList : tldLists) {
+                new TldTable(tldList);
+            }
+        }
+        long tldTablesDuration = (System.nanoTime() - start) / ITERATIONS;
+
+        // Looking up the policy of a configured hostname does not need the TLD tables
+        assertSame(
+                config.getPolicyForHostname("domain0.test.com"),
+                config.getPolicyForHostname("domain0.test.com"));
+
+        Log.i(
+                "TrustKit",
+                String.format(
+                        "%d policies - first configuration: %d us, warm: %d us, TLD tables: %d us",
+                        POLICY_COUNT,
+                        firstDuration / 1000,
+                        warmDuration / 1000,
+                        tldTablesDuration / 1000));
+    }
+
+    private static TrustKitConfiguration newConfiguration() throws MalformedURLException {
+        Set<DomainPinningPolicy> policies = new HashSet<>();
+        for (int i = 0; i < POLICY_COUNT; i++) {
+            policies.add(DomainPolicyTrieTest.newPolicy("domain" + i + ".test.com", true));
+        }
+        return new TestableTrustKitConfiguration(policies);
+    }
+}
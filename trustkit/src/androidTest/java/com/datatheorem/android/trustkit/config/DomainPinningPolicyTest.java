@@ -1,6 +1,7 @@
 package com.datatheorem.android.trustkit.config;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertTrue;
 
 import java.net.MalformedURLException;
@@ -56,6 +57,24 @@ public class DomainPinningPolicyTest {
         assertEquals(expectedReportUris, policy.getReportUris());
     }
 
+    @Test
+    public void testHasExpired() throws MalformedURLException {
+        long now = System.currentTimeMillis();
+        DomainPinningPolicy expiredPolicy =
+                new DomainPinningPolicy(
+                        "www.test.com", true, pins, true, new Date(now - 1000), reportUris, false);
+        assertTrue(expiredPolicy.hasExpired());
+
+        DomainPinningPolicy validPolicy =
+                new DomainPinningPolicy(
+                        "www.test.com", true, pins, true, new Date(now + 60000), reportUris, false);
+        assertFalse(validPolicy.hasExpired());
+
+        DomainPinningPolicy policyWithoutExpiration =
+                new DomainPinningPolicy("www.test.com", true, pins, true, null, reportUris, false);
+        assertFalse(policyWithoutExpiration.hasExpired());
+    }
+
     @Test
     public void testValidPolicyInternationalizeHostname() throws MalformedURLException {
         // Given a valid policy for a domain name with international characters
@@ -108,6 +127,77 @@ public class DomainPinningPolicyTest {
         assertTrue(didReceivedConfigError);
     }
 
+    @Test
+    public void testBackgroundValidationAndSamplingRequireReportOnlyPolicy()
+            throws MalformedURLException {
+        // A report-only policy can be validated in the background, for some handshakes only
+        DomainPinningPolicy policy =
+                new DomainPinningPolicy(
+                        "www.test.com",
+                        true,
+                        pins,
+                        false,
+                        date,
+                        reportUris,
+                        false,
+                        null,
+                        true,
+                        0.1f);
+        assertTrue(policy.shouldValidateInBackground());
+        assertEquals(0.1f, policy.getValidationSampleRate());
+
+        // But an enforced policy cannot
+        boolean didReceiveConfigError = false;
+        try {
+            new DomainPinningPolicy(
+                    "www.test.com", true, pins, true, date, reportUris, false, null, true, null);
+        } catch (ConfigurationException e) {
+            didReceiveConfigError = true;
+        }
+        assertTrue(didReceiveConfigError);
+
+        didReceiveConfigError = false;
+        try {
+            new DomainPinningPolicy(
+                    "www.test.com", true, pins, true, date, reportUris, false, null, null, 0.5f);
+        } catch (ConfigurationException e) {
+            didReceiveConfigError = true;
+        }
+        assertTrue(didReceiveConfigError);
+
+        // And the sample rate must be a ratio
+        didReceiveConfigError = false;
+        try {
+            new DomainPinningPolicy(
+                    "www.test.com", true, pins, false, date, reportUris, false, null, null, 2f);
+        } catch (ConfigurationException e) {
+            didReceiveConfigError = true;
+        }
+        assertTrue(didReceiveConfigError);
+    }
+
+    @Test
+    public void testHostnamePattern() throws MalformedURLException {
+        DomainPinningPolicy policy =
+                new DomainPinningPolicy(
+                        "api-*.test.com", true, pins, true, date, reportUris, false);
+        assertTrue(policy.isHostnamePattern());
+        assertFalse(
+                new DomainPinningPolicy("www.test.com", true, pins, true, date, reportUris, false)
+                        .isHostnamePattern());
+
+        // The top-level domain cannot be a pattern
+        for (String badPattern : new String[] {"www.test.*", "www.test.c*m", "api_*.test.com"}) {
+            boolean didReceiveConfigError = false;
+            try {
+                new DomainPinningPolicy(badPattern, true, pins, true, date, reportUris, false);
+            } catch (ConfigurationException e) {
+                didReceiveConfigError = true;
+            }
+            assertTrue(badPattern, didReceiveConfigError);
+        }
+    }
+
     @Test
     public void testBadPolicyPinTld() throws MalformedURLException {
         // Given a policy for an invalid domain
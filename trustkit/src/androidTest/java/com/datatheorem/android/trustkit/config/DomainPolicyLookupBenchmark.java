@@ -0,0 +1,91 @@
+package com.datatheorem.android.trustkit.config;
+
+import static junit.framework.Assert.assertSame;
+
+import android.util.Log;
+import com.datatheorem.android.trustkit.Benchmark;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Micro-benchmark comparing policy lookups in a {@link DomainPolicyTrie} with the linear scan of
+ * all the policies previously done by {@link TrustKitConfiguration#getPolicyForHostname}. Results
+ * are written to logcat.
+ */
+@Benchmark
+public class DomainPolicyLookupBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 1_000;
+    private static final int ITERATIONS = 10_000;
+
+    @Test
+    public void benchmarkGetPolicyForHostname() throws MalformedURLException {
+        for (int policyCount : new int[] {10, 1_000, 10_000}) {
+            List<DomainPinningPolicy> policies = new ArrayList<>(policyCount);
+            for (int i = 0; i < policyCount; i++) {
+                policies.add(DomainPolicyTrieTest.newPolicy("domain" + i + ".test.com", true));
+            }
+            DomainPolicyTrie trie = new DomainPolicyTrie(policies);
+            // A subdomain of the last policy, which is the worst case for the linear scan
+            String hostname = "www.domain" + (policyCount - 1) + ".test.com";
+            assertSame(policies.get(policyCount - 1), trie.getPolicyForHostname(hostname));
+            assertSame(policies.get(policyCount - 1), linearScan(policies, hostname));
+
+            lookupWithLinearScan(policies, hostname, WARMUP_ITERATIONS);
+            lookupWithTrie(trie, hostname, WARMUP_ITERATIONS);
+
+            long start = System.nanoTime();
+            lookupWithLinearScan(policies, hostname, ITERATIONS);
+            long linearScanDuration = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            lookupWithTrie(trie, hostname, ITERATIONS);
+            long trieDuration = System.nanoTime() - start;
+
+            Log.i(
+                    "TrustKit",
+                    String.format(
+                            "%d policies - linear scan: %d ns/lookup, trie: %d ns/lookup",
+                            policyCount,
+                            linearScanDuration / ITERATIONS,
+                            trieDuration / ITERATIONS));
+        }
+    }
+
+    private static void lookupWithTrie(DomainPolicyTrie trie, String hostname, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            trie.getPolicyForHostname(hostname);
+        }
+    }
+
+    private static void lookupWithLinearScan(
+            List<DomainPinningPolicy> policies, String hostname, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            linearScan(policies, hostname);
+        }
+    }
+
+    // The lookup previously done by TrustKitConfiguration
+    private static DomainPinningPolicy linearScan(
+            List<DomainPinningPolicy> policies, String serverHostname) {
+        DomainPinningPolicy bestMatchPolicy = null;
+        for (DomainPinningPolicy domainPolicy : policies) {
+            if (domainPolicy.getHostname().equals(serverHostname)) {
+                return domainPolicy;
+            }
+            String domain = domainPolicy.getHostname();
+            if (domainPolicy.shouldIncludeSubdomains()
+                    && serverHostname.endsWith(domain)
+                    && (serverHostname.charAt(serverHostname.length() - domain.length() - 1)
+                            == '.')) {
+                if ((bestMatchPolicy == null)
+                        || (domain.length() > bestMatchPolicy.getHostname().length())) {
+                    bestMatchPolicy = domainPolicy;
+                }
+            }
+        }
+        return bestMatchPolicy;
+    }
+}
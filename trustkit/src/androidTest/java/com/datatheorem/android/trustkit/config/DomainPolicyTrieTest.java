@@ -0,0 +1,81 @@
+package com.datatheorem.android.trustkit.config;
+
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+import java.net.MalformedURLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import org.junit.Test;
+
+public class DomainPolicyTrieTest {
+
+    @Test
+    public void testLookup() throws MalformedURLException {
+        DomainPinningPolicy tldPolicy = newPolicy("test.com", true);
+        DomainPinningPolicy subdomainPolicy = newPolicy("sub.test.com", true);
+        DomainPinningPolicy exactPolicy = newPolicy("www.sub.test.com", false);
+        DomainPinningPolicy otherPolicy = newPolicy("other.org", false);
+        DomainPolicyTrie trie =
+                new DomainPolicyTrie(
+                        Arrays.asList(tldPolicy, subdomainPolicy, exactPolicy, otherPolicy));
+
+        // Exact matches
+        assertSame(tldPolicy, trie.getPolicyForHostname("test.com"));
+        assertSame(subdomainPolicy, trie.getPolicyForHostname("sub.test.com"));
+        assertSame(exactPolicy, trie.getPolicyForHostname("www.sub.test.com"));
+        assertSame(otherPolicy, trie.getPolicyForHostname("other.org"));
+
+        // The most specific domain that includes subdomains
+        assertSame(tldPolicy, trie.getPolicyForHostname("www.test.com"));
+        assertSame(subdomainPolicy, trie.getPolicyForHostname("a.b.sub.test.com"));
+        assertSame(subdomainPolicy, trie.getPolicyForHostname("a.www.sub.test.com"));
+
+        // No match
+        assertNull(trie.getPolicyForHostname("www.other.org"));
+        assertNull(trie.getPolicyForHostname("com"));
+        assertNull(trie.getPolicyForHostname("othertest.com"));
+        assertNull(trie.getPolicyForHostname("test.com.evil.com"));
+    }
+
+    @Test
+    public void testPatternLookup() throws MalformedURLException {
+        DomainPinningPolicy parentPolicy = newPolicy("example.com", true);
+        DomainPinningPolicy apiPolicy = newPolicy("api-*.example.com", false);
+        DomainPinningPolicy euPolicy = newPolicy("*-eu.example.com", true);
+        DomainPinningPolicy exactPolicy = newPolicy("api-us.example.com", false);
+        DomainPinningPolicy regionPolicy = newPolicy("cdn.*.example.com", false);
+        DomainPolicyTrie trie =
+                new DomainPolicyTrie(
+                        Arrays.asList(
+                                parentPolicy, apiPolicy, euPolicy, exactPolicy, regionPolicy));
+
+        assertSame(apiPolicy, trie.getPolicyForHostname("api-ap.example.com"));
+        // An exact hostname takes precedence over a pattern
+        assertSame(exactPolicy, trie.getPolicyForHostname("api-us.example.com"));
+        // The pattern with the most non-wildcard characters wins
+        assertSame(apiPolicy, trie.getPolicyForHostname("api-eu.example.com"));
+        assertSame(euPolicy, trie.getPolicyForHostname("www-eu.example.com"));
+        // Patterns only match within a label
+        assertSame(euPolicy, trie.getPolicyForHostname("www.img-eu.example.com"));
+        assertSame(parentPolicy, trie.getPolicyForHostname("www.api-ap.example.com"));
+        assertSame(regionPolicy, trie.getPolicyForHostname("cdn.eu-west.example.com"));
+        assertSame(parentPolicy, trie.getPolicyForHostname("cdn.example.com"));
+        assertNull(trie.getPolicyForHostname("api-ap.example.org"));
+    }
+
+    static DomainPinningPolicy newPolicy(String hostname, boolean shouldIncludeSubdomains)
+            throws MalformedURLException {
+        return new DomainPinningPolicy.Builder()
+                .setHostname(hostname)
+                .setShouldIncludeSubdomains(shouldIncludeSubdomains)
+                .setPublicKeyHashes(
+                        new HashSet<String>() {
+                            {
+                                add("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=");
+                                add("BBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBB=");
+                            }
+                        })
+                .build();
+    }
+}
@@ -0,0 +1,123 @@
+package com.datatheorem.android.trustkit.config;
+
+import static junit.framework.Assert.assertEquals;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Differential test of the hand-written domain name scanner used by {@link DomainValidator} against
+ * the regular expressions it replaced.
+ */
+public class DomainValidatorSyntaxTest {
+
+    private static final int CORPUS_SIZE = 200_000;
+
+    // Mostly valid label characters, with a few that are not
+    private static final String ALPHABET = "abcxyzABCXYZ0189------.....__ é";
+    private static final String[] TOP_LABELS = {
+        "com", "org", "fr", "museum", "localhost", "localdomain", "c0m", "x-y", "COM", "9z", "a"
+    };
+
+    // The regular expressions DomainValidator used before the scanner was introduced
+    // RFC2396: domainlabel   = alphanum | alphanum *( alphanum | "-" ) alphanum
+    private static final String DOMAIN_LABEL_REGEX = "\\p{Alnum}(?>[\\p{Alnum}-]{0,61}\\p{Alnum})?";
+    // RFC2396 toplabel = alpha | alpha *( alphanum | "-" ) alphanum
+    private static final String TOP_LABEL_REGEX = "\\p{Alpha}(?>[\\p{Alnum}-]{0,61}\\p{Alnum})?";
+    // RFC2396 hostname = *( domainlabel "." ) toplabel [ "." ]
+    private static final String DOMAIN_NAME_REGEX =
+            "^(?:" + DOMAIN_LABEL_REGEX + "\\.)+" + "(" + TOP_LABEL_REGEX + ")\\.?$";
+
+    private final RegexValidator domainRegex = new RegexValidator(DOMAIN_NAME_REGEX);
+    private final RegexValidator hostnameRegex = new RegexValidator(DOMAIN_LABEL_REGEX);
+
+    @Test
+    public void testScannerMatchesRegex() {
+        Random random = new Random(42);
+        DomainValidator validator = DomainValidator.getInstance();
+        DomainValidator validatorWithLocal = DomainValidator.getInstance(true);
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            String domain = generateDomain(random);
+
+            assertEquals(domain, regexIsValid(validator, domain, false), validator.isValid(domain));
+            assertEquals(
+                    domain,
+                    regexIsValid(validatorWithLocal, domain, true),
+                    validatorWithLocal.isValid(domain));
+
+            // The top label found by the scanner is the regex's group
+            String[] groups = domainRegex.match(domain);
+            long topLabelRange = DomainValidator.scanDomainName(domain);
+            if (groups == null) {
+                assertEquals(domain, DomainValidator.INVALID_DOMAIN_NAME, topLabelRange);
+            } else {
+                assertEquals(
+                        domain,
+                        groups[0],
+                        domain.substring(
+                                DomainValidator.getRangeStart(topLabelRange),
+                                DomainValidator.getRangeEnd(topLabelRange)));
+            }
+        }
+    }
+
+    @Test
+    public void testLabelLengthLimits() {
+        DomainValidator validator = DomainValidator.getInstance(true);
+        for (int labelLength = 60; labelLength <= 66; labelLength++) {
+            StringBuilder label = new StringBuilder();
+            for (int i = 0; i < labelLength; i++) {
+                label.append((i % 2 == 0) ? 'a' : '-');
+            }
+            label.setCharAt(labelLength - 1, 'z');
+            for (String domain :
+                    new String[] {
+                        label.toString(),
+                        label + ".com",
+                        "www." + label + ".com.",
+                        "www." + label,
+                        label + "." + label + "." + label + "." + label + ".com"
+                    }) {
+                assertEquals(
+                        domain, regexIsValid(validator, domain, true), validator.isValid(domain));
+            }
+        }
+    }
+
+    // The implementation of DomainValidator.isValid() before the scanner was introduced
+    private boolean regexIsValid(DomainValidator validator, String domain, boolean allowLocal) {
+        domain = DomainValidator.unicodeToASCII(domain);
+        if (domain.length() > 253) {
+            return false;
+        }
+        String[] groups = domainRegex.match(domain);
+        if (groups != null && groups.length > 0) {
+            return validator.isValidTld(groups[0]);
+        }
+        return allowLocal && hostnameRegex.isValid(domain);
+    }
+
+    private static String generateDomain(Random random) {
+        StringBuilder domain = new StringBuilder();
+        int labelCount = random.nextInt(4);
+        for (int i = 0; i < labelCount; i++) {
+            int labelLength = random.nextInt(8);
+            for (int j = 0; j < labelLength; j++) {
+                domain.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            domain.append('.');
+        }
+        if (random.nextBoolean()) {
+            domain.append(TOP_LABELS[random.nextInt(TOP_LABELS.length)]);
+        } else if (domain.length() > 0) {
+            // Leave the trailing dot, or drop it
+            if (random.nextBoolean()) {
+                domain.setLength(domain.length() - 1);
+            }
+        }
+        if (random.nextInt(10) == 0) {
+            domain.append('.');
+        }
+        return domain.toString();
+    }
+}
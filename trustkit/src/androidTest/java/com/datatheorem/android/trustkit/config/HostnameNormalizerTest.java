@@ -0,0 +1,57 @@
+package com.datatheorem.android.trustkit.config;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+
+import java.net.MalformedURLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import org.junit.Test;
+
+public class HostnameNormalizerTest {
+
+    @Test
+    public void testNormalize() {
+        // Canonical hostnames are returned as is
+        String hostname = "www.test.com";
+        assertSame(hostname, HostnameNormalizer.normalize(hostname));
+
+        assertEquals("www.test.com", HostnameNormalizer.normalize("WWW.Test.com"));
+        assertEquals("www.test.com", HostnameNormalizer.normalize("www.test.com."));
+        assertEquals("www.test.com", HostnameNormalizer.normalize("Www.Test.Com."));
+        assertEquals(
+                "xn--bcher-kva.example.com", HostnameNormalizer.normalize("Bücher.example.com"));
+        assertEquals("localhost", HostnameNormalizer.normalize("LOCALHOST"));
+    }
+
+    @Test
+    public void testPunycodeConversionIsCached() {
+        String ascii = HostnameNormalizer.normalize("českárepublika.icom.museum");
+        assertEquals("xn--eskrepublika-ebb62d.icom.museum", ascii);
+        assertSame(ascii, HostnameNormalizer.normalize("českárepublika.icom.museum"));
+    }
+
+    @Test
+    public void testPolicyLookupUsesCanonicalHostname() throws MalformedURLException {
+        DomainPinningPolicy policy = DomainPolicyTrieTest.newPolicy("Bücher.example.com", true);
+        DomainPinningPolicy otherPolicy = DomainPolicyTrieTest.newPolicy("test.com", false);
+        TrustKitConfiguration config =
+                new TestableTrustKitConfiguration(
+                        new HashSet<>(Arrays.asList(policy, otherPolicy)));
+
+        assertSame(policy, config.getPolicyForHostname("bücher.example.com"));
+        assertSame(policy, config.getPolicyForHostname("xn--bcher-kva.example.com"));
+        assertSame(policy, config.getPolicyForHostname("www.BÜCHER.example.com."));
+        assertSame(otherPolicy, config.getPolicyForHostname("TEST.com"));
+        assertSame(otherPolicy, config.getPolicyForHostname("test.com."));
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testSameDomainWithDifferentCase() throws MalformedURLException {
+        new TestableTrustKitConfiguration(
+                new HashSet<>(
+                        Arrays.asList(
+                                DomainPolicyTrieTest.newPolicy("test.com", false),
+                                DomainPolicyTrieTest.newPolicy("Test.com", false))));
+    }
+}
@@ -0,0 +1,72 @@
+package com.datatheorem.android.trustkit.config;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+public class LabelPatternMatcherTest {
+
+    @Test
+    public void testMatch() {
+        LabelPatternMatcher matcher =
+                new LabelPatternMatcher(Arrays.asList("api-*", "*-eu", "*", "a*b*c"));
+
+        assertMatches(matcher, "api-eu", 0, 1, 2);
+        assertMatches(matcher, "api-us", 0, 2);
+        assertMatches(matcher, "api-", 0, 2);
+        assertMatches(matcher, "www-eu", 1, 2);
+        assertMatches(matcher, "abc", 2, 3);
+        assertMatches(matcher, "a-bb-cc", 2, 3);
+        assertMatches(matcher, "www", 2);
+        // Only characters allowed in canonical labels can match
+        assertMatches(matcher, "api_eu");
+        assertMatches(matcher, "API-EU");
+    }
+
+    @Test
+    public void testMatchesLikeRegularExpressions() {
+        Random random = new Random(7);
+        List<String> patterns = new ArrayList<>();
+        List<Pattern> regexes = new ArrayList<>();
+        for (int p = 0; p < 20; p++) {
+            String pattern = randomLabel(random, "ab-*");
+            patterns.add(pattern);
+            regexes.add(Pattern.compile(pattern.replace("*", "[a-z0-9-]*")));
+        }
+        LabelPatternMatcher matcher = new LabelPatternMatcher(patterns);
+
+        for (int i = 0; i < 20_000; i++) {
+            String label = randomLabel(random, "ab-");
+            List<Integer> expected = new ArrayList<>();
+            for (int p = 0; p < regexes.size(); p++) {
+                if (regexes.get(p).matcher(label).matches()) {
+                    expected.add(p);
+                }
+            }
+            List<Integer> actual = new ArrayList<>();
+            for (int p : matcher.match("www." + label + ".com", 4, 4 + label.length())) {
+                actual.add(p);
+            }
+            assertEquals(label, expected, actual);
+        }
+    }
+
+    private static void assertMatches(LabelPatternMatcher matcher, String label, int... indexes) {
+        assertTrue(label, Arrays.equals(indexes, matcher.match(label, 0, label.length())));
+    }
+
+    private static String randomLabel(Random random, String alphabet) {
+        StringBuilder label = new StringBuilder();
+        int length = 1 + random.nextInt(6);
+        for (int i = 0; i < length; i++) {
+            label.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return label.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package com.datatheorem.android.trustkit.config;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import java.net.MalformedURLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class PolicyLookupCacheTest {
+
+    @Test
+    public void testCachedLookups() throws MalformedURLException {
+        DomainPinningPolicy policy = DomainPolicyTrieTest.newPolicy("test.com", true);
+        TrustKitConfiguration config =
+                new TestableTrustKitConfiguration(new HashSet<>(Arrays.asList(policy)));
+
+        // Lookups return the same result once cached, including for hostnames without a policy
+        for (int i = 0; i < 3; i++) {
+            assertSame(policy, config.getPolicyForHostname("www.test.com"));
+            assertNull(config.getPolicyForHostname("www.other.com"));
+        }
+
+        // Many distinct hostnames do not break lookups
+        for (int i = 0; i < 1000; i++) {
+            assertSame(policy, config.getPolicyForHostname("host" + i + ".test.com"));
+        }
+        assertSame(policy, config.getPolicyForHostname("www.test.com"));
+    }
+
+    @Test
+    public void testConcurrentLookups() throws MalformedURLException, InterruptedException {
+        final DomainPinningPolicy policy = DomainPolicyTrieTest.newPolicy("test.com", true);
+        final TrustKitConfiguration config =
+                new TestableTrustKitConfiguration(new HashSet<>(Arrays.asList(policy)));
+
+        // More hostnames than the lookup cache holds, so that it gets cleared while in use
+        final int hostnameCount = 512;
+        final AtomicInteger mismatchCount = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] =
+                    new Thread(
+                            new Runnable() {
+                                @Override
+                                public void run() {
+                                    for (int i = 0; i < 2000; i++) {
+                                        String hostname =
+                                                "host"
+                                                        + ((i + offset) % hostnameCount)
+                                                        + ".test.com";
+                                        if (config.getPolicyForHostname(hostname) != policy) {
+                                            mismatchCount.incrementAndGet();
+                                        }
+                                        if (config.getPolicyForHostname("www.other.com") != null) {
+                                            mismatchCount.incrementAndGet();
+                                        }
+                                    }
+                                }
+                            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, mismatchCount.get());
+    }
+
+    @Test
+    public void testInvalidHostnameIsNotCached() throws MalformedURLException {
+        TrustKitConfiguration config =
+                new TestableTrustKitConfiguration(
+                        new HashSet<>(
+                                Arrays.asList(DomainPolicyTrieTest.newPolicy("test.com", true))));
+        for (int i = 0; i < 2; i++) {
+            boolean didThrow = false;
+            try {
+                config.getPolicyForHostname("not a hostname");
+            } catch (IllegalArgumentException e) {
+                didThrow = true;
+            }
+            assertTrue(didThrow);
+        }
+    }
+}
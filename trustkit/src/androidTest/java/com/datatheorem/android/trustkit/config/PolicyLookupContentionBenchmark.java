@@ -0,0 +1,83 @@
+package com.datatheorem.android.trustkit.config;
+
+import static junit.framework.Assert.assertEquals;
+
+import android.util.Log;
+import com.datatheorem.android.trustkit.Benchmark;
+import java.net.MalformedURLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * Micro-benchmark running concurrent {@link TrustKitConfiguration#getPolicyForHostname} calls from
+ * 1 to 64 threads, to check that the lookups do not serialize on a lock. More hostnames than what
+ * the lookup cache holds are used, so that most lookups go through hostname validation. Results are
+ * written to logcat.
+ */
+@Benchmark
+public class PolicyLookupContentionBenchmark {
+
+    private static final int HOSTNAME_COUNT = 512;
+    private static final int LOOKUPS_PER_THREAD = 20_000;
+
+    @Test
+    public void benchmarkConcurrentLookups() throws MalformedURLException, InterruptedException {
+        final TrustKitConfiguration config =
+                new TestableTrustKitConfiguration(
+                        new HashSet<>(
+                                Arrays.asList(DomainPolicyTrieTest.newPolicy("test.com", true))));
+        final String[] hostnames = new String[HOSTNAME_COUNT];
+        for (int i = 0; i < HOSTNAME_COUNT; i++) {
+            hostnames[i] = "host" + i + ".test.com";
+        }
+
+        for (int threadCount : new int[] {1, 2, 4, 8, 16, 32, 64}) {
+            final CountDownLatch startLatch = new CountDownLatch(1);
+            final AtomicInteger matchCount = new AtomicInteger();
+            Thread[] threads = new Thread[threadCount];
+            for (int t = 0; t < threadCount; t++) {
+                final int offset = t;
+                threads[t] =
+                        new Thread(
+                                new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        try {
+                                            startLatch.await();
+                                        } catch (InterruptedException e) {
+                                            return;
+                                        }
+                                        int matches = 0;
+                                        for (int i = 0; i < LOOKUPS_PER_THREAD; i++) {
+                                            String hostname =
+                                                    hostnames[(i + offset) % HOSTNAME_COUNT];
+                                            if (config.getPolicyForHostname(hostname) != null) {
+                                                matches++;
+                                            }
+                                        }
+                                        matchCount.addAndGet(matches);
+                                    }
+                                });
+                threads[t].start();
+            }
+
+            long start = System.nanoTime();
+            startLatch.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long duration = System.nanoTime() - start;
+
+            int totalLookups = threadCount * LOOKUPS_PER_THREAD;
+            assertEquals(totalLookups, matchCount.get());
+            Log.i(
+                    "TrustKit",
+                    String.format(
+                            "%d threads - %d lookups/ms",
+                            threadCount, totalLookups * 1_000_000L / duration));
+        }
+    }
+}
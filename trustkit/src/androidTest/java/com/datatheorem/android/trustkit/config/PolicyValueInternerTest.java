@@ -0,0 +1,174 @@
+package com.datatheorem.android.trustkit.config;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import android.util.Log;
+import com.datatheorem.android.trustkit.Benchmark;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+
+public class PolicyValueInternerTest {
+
+    private static final String[] PIN_SET_1 = {
+        "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=",
+        "BBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBB="
+    };
+    private static final String[] PIN_SET_2 = {
+        "CCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCC=",
+        "BBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBB="
+    };
+
+    // Domains of a large configuration, sharing a few pin sets
+    private static final int LARGE_POLICY_COUNT = 2000;
+
+    @Test
+    public void testIdenticalValuesAreShared() throws MalformedURLException {
+        PolicyValueInterner interner = new PolicyValueInterner();
+        DomainPinningPolicy policy1 =
+                newBuilder("www.test.com", PIN_SET_1, "https://report.test.com/")
+                        .build(null, interner);
+        DomainPinningPolicy policy2 =
+                newBuilder("api.test.com", PIN_SET_1, "https://report.test.com/")
+                        .build(null, interner);
+
+        assertSame(policy1.getPublicKeyPins(), policy2.getPublicKeyPins());
+        assertSame(policy1.getReportUris(), policy2.getReportUris());
+        assertEquals(2, policy1.getReportUris().size());
+
+        // Statistics are still tracked for each policy
+        assertTrue(policy1.matchPin(new PublicKeyPin(PIN_SET_1[0]), 0));
+        assertEquals(
+                Long.valueOf(1), policy1.getPinHitCounts().get(new PublicKeyPin(PIN_SET_1[0])));
+        assertEquals(
+                Long.valueOf(0), policy2.getPinHitCounts().get(new PublicKeyPin(PIN_SET_1[0])));
+    }
+
+    @Test
+    public void testValuesAreSharedWithinBuilderTree() throws MalformedURLException {
+        DomainPinningPolicy.Builder parentBuilder =
+                newBuilder("test.com", PIN_SET_1, "https://report.test.com/");
+        DomainPinningPolicy parentPolicy = parentBuilder.build();
+        DomainPinningPolicy childPolicy =
+                new DomainPinningPolicy.Builder()
+                        .setHostname("www.test.com")
+                        .setParent(parentBuilder)
+                        .build();
+        assertSame(parentPolicy.getPublicKeyPins(), childPolicy.getPublicKeyPins());
+        assertSame(parentPolicy.getReportUris(), childPolicy.getReportUris());
+
+        // Unrelated builders do not keep each other's values alive
+        DomainPinningPolicy otherPolicy =
+                newBuilder("api.test.com", PIN_SET_1, "https://report.test.com/").build();
+        assertNotSame(parentPolicy.getPublicKeyPins(), otherPolicy.getPublicKeyPins());
+        assertEquals(parentPolicy.getPublicKeyPins(), otherPolicy.getPublicKeyPins());
+    }
+
+    @Test
+    public void testDifferentValuesAreNotShared() throws MalformedURLException {
+        PolicyValueInterner interner = new PolicyValueInterner();
+        DomainPinningPolicy policy1 =
+                newBuilder("www.test.com", PIN_SET_1, "https://report.test.com/")
+                        .build(null, interner);
+        DomainPinningPolicy policy2 =
+                newBuilder("api.test.com", PIN_SET_2, "https://report.test.com/")
+                        .setShouldDisableDefaultReportUri(true)
+                        .build(null, interner);
+
+        assertNotSame(policy1.getPublicKeyPins(), policy2.getPublicKeyPins());
+        assertEquals(2, policy2.getPublicKeyPins().size());
+        assertNotSame(policy1.getReportUris(), policy2.getReportUris());
+        assertEquals(
+                Collections.singleton(new URL("https://report.test.com/")),
+                policy2.getReportUris());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSharedReportUrisCannotBeModified() throws MalformedURLException {
+        DomainPinningPolicy policy =
+                newBuilder("www.test.com", PIN_SET_1, "https://report.test.com/")
+                        .build(null, new PolicyValueInterner());
+        policy.getReportUris().clear();
+    }
+
+    @Test
+    @Benchmark
+    public void testRetainedHeapSavingsForLargeConfiguration() throws MalformedURLException {
+        long baseline = getUsedMemory();
+        List<DomainPinningPolicy> unsharedPolicies = newLargeConfiguration(false);
+        long unsharedSize = getUsedMemory() - baseline;
+
+        // Only the pin sets and report URLs retained by the policies should differ
+        assertEquals(LARGE_POLICY_COUNT, countDistinctPinSets(unsharedPolicies));
+        unsharedPolicies = null;
+
+        baseline = getUsedMemory();
+        List<DomainPinningPolicy> sharedPolicies = newLargeConfiguration(true);
+        long sharedSize = getUsedMemory() - baseline;
+        assertEquals(2, countDistinctPinSets(sharedPolicies));
+
+        Log.i(
+                "TrustKit",
+                String.format(
+                        "%d policies - retained heap without sharing: %d KB, with sharing: %d KB,"
+                                + " saved: %d KB",
+                        LARGE_POLICY_COUNT,
+                        unsharedSize / 1024,
+                        sharedSize / 1024,
+                        (unsharedSize - sharedSize) / 1024));
+    }
+
+    private static List<DomainPinningPolicy> newLargeConfiguration(boolean shouldShareValues)
+            throws MalformedURLException {
+        List<DomainPinningPolicy> policies = new ArrayList<>(LARGE_POLICY_COUNT);
+        PolicyValueInterner interner = new PolicyValueInterner();
+        for (int i = 0; i < LARGE_POLICY_COUNT; i++) {
+            if (!shouldShareValues) {
+                interner = new PolicyValueInterner();
+            }
+            policies.add(
+                    newBuilder(
+                                    "domain" + i + ".test.com",
+                                    (i % 2 == 0) ? PIN_SET_1 : PIN_SET_2,
+                                    "https://report.test.com/")
+                            .build(null, interner));
+        }
+        return policies;
+    }
+
+    private static int countDistinctPinSets(List<DomainPinningPolicy> policies) {
+        Set<Set<PublicKeyPin>> pinSets =
+                Collections.newSetFromMap(new IdentityHashMap<Set<PublicKeyPin>, Boolean>());
+        for (DomainPinningPolicy policy : policies) {
+            pinSets.add(policy.getPublicKeyPins());
+        }
+        return pinSets.size();
+    }
+
+    private static long getUsedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            runtime.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static DomainPinningPolicy.Builder newBuilder(
+            String hostname, String[] pins, String reportUri) {
+        return new DomainPinningPolicy.Builder()
+                .setHostname(hostname)
+                .setPublicKeyHashes(new HashSet<>(Arrays.asList(pins)))
+                .setReportUris(Collections.singleton(reportUri));
+    }
+}
@@ -0,0 +1,67 @@
+package com.datatheorem.android.trustkit.config;
+
+import static junit.framework.Assert.assertEquals;
+
+import android.util.Log;
+import com.datatheorem.android.trustkit.Benchmark;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ * Micro-benchmark comparing pin lookups in a {@link PublicKeyPinSet} with lookups in the {@code
+ * HashSet<PublicKeyPin>} previously used by {@link DomainPinningPolicy}. Results are written to
+ * logcat.
+ */
+@Benchmark
+public class PublicKeyPinSetBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int ITERATIONS = 200_000;
+
+    @Test
+    public void benchmarkContains() {
+        for (int pinCount : new int[] {2, 6, 10}) {
+            List<PublicKeyPin> configuredPins = PublicKeyPinSetTest.generatePins(pinCount, 1);
+            // Typical chain: leaf and root are not pinned, the intermediate is
+            List<PublicKeyPin> chainPins = PublicKeyPinSetTest.generatePins(2, 2);
+            chainPins.add(configuredPins.get(pinCount - 1));
+
+            Set<PublicKeyPin> hashSet = new HashSet<>(configuredPins);
+            Set<PublicKeyPin> pinSet = new PublicKeyPinSet(configuredPins);
+
+            lookupChain(hashSet, chainPins, WARMUP_ITERATIONS);
+            lookupChain(pinSet, chainPins, WARMUP_ITERATIONS);
+
+            long start = System.nanoTime();
+            int hashSetMatches = lookupChain(hashSet, chainPins, ITERATIONS);
+            long hashSetDuration = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int pinSetMatches = lookupChain(pinSet, chainPins, ITERATIONS);
+            long pinSetDuration = System.nanoTime() - start;
+
+            assertEquals(hashSetMatches, pinSetMatches);
+            Log.i(
+                    "TrustKit",
+                    String.format(
+                            "%d pins - HashSet: %d ns/chain, PublicKeyPinSet: %d ns/chain",
+                            pinCount, hashSetDuration / ITERATIONS, pinSetDuration / ITERATIONS));
+        }
+    }
+
+    private static int lookupChain(
+            Set<PublicKeyPin> configuredPins, List<PublicKeyPin> chainPins, int iterations) {
+        int matches = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (PublicKeyPin pin : chainPins) {
+                if (configuredPins.contains(pin)) {
+                    matches++;
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,73 @@
+package com.datatheorem.android.trustkit.config;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import android.util.Base64;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class PublicKeyPinSetTest {
+
+    static List<PublicKeyPin> generatePins(int count, long seed) {
+        Random random = new Random(seed);
+        List<PublicKeyPin> pins = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            byte[] hash = new byte[32];
+            random.nextBytes(hash);
+            pins.add(new PublicKeyPin(Base64.encodeToString(hash, Base64.NO_WRAP)));
+        }
+        return pins;
+    }
+
+    @Test
+    public void testContains() {
+        List<PublicKeyPin> configuredPins = generatePins(10, 1);
+        PublicKeyPinSet pinSet = new PublicKeyPinSet(configuredPins);
+
+        assertEquals(10, pinSet.size());
+        for (PublicKeyPin pin : configuredPins) {
+            assertTrue(pinSet.contains(pin));
+            assertEquals(pin, configuredPins.get(pinSet.indexOf(pin)));
+        }
+        for (PublicKeyPin pin : generatePins(100, 2)) {
+            assertFalse(pinSet.contains(pin));
+            assertEquals(-1, pinSet.indexOf(pin));
+        }
+        assertFalse(pinSet.contains(configuredPins.get(0).toString()));
+    }
+
+    @Test
+    public void testEqualsHashSet() {
+        List<PublicKeyPin> configuredPins = generatePins(6, 3);
+        assertEquals(new HashSet<>(configuredPins), new PublicKeyPinSet(configuredPins));
+        assertEquals(new PublicKeyPinSet(configuredPins), new HashSet<>(configuredPins));
+    }
+
+    @Test
+    public void testDuplicatePinsAreRemoved() {
+        PublicKeyPinSet pinSet =
+                new PublicKeyPinSet(
+                        Arrays.asList(
+                                new PublicKeyPin("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA="),
+                                new PublicKeyPin("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA="),
+                                new PublicKeyPin("rFjc3wG7lTZe43zeYTvPq8k4xdDEutCmIhI5dn4oCeE=")));
+        assertEquals(2, pinSet.size());
+        assertTrue(
+                pinSet.contains(new PublicKeyPin("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=")));
+    }
+
+    @Test
+    public void testEmptySet() {
+        PublicKeyPinSet pinSet = new PublicKeyPinSet(new ArrayList<PublicKeyPin>());
+        assertEquals(0, pinSet.size());
+        assertFalse(pinSet.iterator().hasNext());
+        assertFalse(
+                pinSet.contains(new PublicKeyPin("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=")));
+    }
+}
@@ -1,11 +1,14 @@
 package com.datatheorem.android.trustkit.config;
 
+import static com.datatheorem.android.trustkit.CertificateUtils.testCertChain;
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertTrue;
 
 import com.datatheorem.android.trustkit.CertificateUtils;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
+import java.util.List;
 import org.junit.Test;
 
 public class PublicKeyPinTest {
@@ -35,12 +38,32 @@ public class PublicKeyPinTest {
         assertEquals("Ckvh+UFO2eHunqaB2w0jsrwrJJQcSoES+p9FUhVoszQ=", pin.toString());
     }
 
+    @Test
+    public void testFromCertificateChain() {
+        List<PublicKeyPin> pins = PublicKeyPin.fromCertificateChain(testCertChain);
+        assertEquals(testCertChain.size(), pins.size());
+        for (int i = 0; i < testCertChain.size(); i++) {
+            assertEquals(new PublicKeyPin(testCertChain.get(i)), pins.get(i));
+        }
+    }
+
     @Test
     public void testFromString() {
         PublicKeyPin pin = new PublicKeyPin("rFjc3wG7lTZe43zeYTvPq8k4xdDEutCmIhI5dn4oCeE=");
         assertEquals(pin.toString(), "rFjc3wG7lTZe43zeYTvPq8k4xdDEutCmIhI5dn4oCeE=");
     }
 
+    @Test
+    public void testEquals() {
+        PublicKeyPin pin = new PublicKeyPin("rFjc3wG7lTZe43zeYTvPq8k4xdDEutCmIhI5dn4oCeE=");
+        PublicKeyPin samePin = new PublicKeyPin("rFjc3wG7lTZe43zeYTvPq8k4xdDEutCmIhI5dn4oCeE=\n");
+        PublicKeyPin otherPin = new PublicKeyPin("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=");
+        assertEquals(pin, samePin);
+        assertEquals(pin.hashCode(), samePin.hashCode());
+        assertFalse(pin.equals(otherPin));
+        assertFalse(pin.equals(pin.toString()));
+    }
+
     @Test
     public void testFromBadStringNotBase64() {
         boolean didReturnError = false;
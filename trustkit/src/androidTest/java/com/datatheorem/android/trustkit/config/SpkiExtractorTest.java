@@ -0,0 +1,50 @@
+package com.datatheorem.android.trustkit.config;
+
+import static com.datatheorem.android.trustkit.CertificateUtils.testCertChain;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class SpkiExtractorTest {
+
+    @Test
+    public void testLocatesSubjectPublicKeyInfo() throws CertificateEncodingException {
+        for (X509Certificate certificate : testCertChain) {
+            byte[] der = certificate.getEncoded();
+            long location = SpkiExtractor.locateSubjectPublicKeyInfo(der);
+            assertTrue(location != SpkiExtractor.NOT_FOUND);
+
+            int offset = SpkiExtractor.getOffset(location);
+            byte[] spki =
+                    Arrays.copyOfRange(der, offset, offset + SpkiExtractor.getLength(location));
+            assertTrue(Arrays.equals(certificate.getPublicKey().getEncoded(), spki));
+        }
+    }
+
+    @Test
+    public void testInvalidEncodings() throws CertificateEncodingException {
+        assertEquals(SpkiExtractor.NOT_FOUND, SpkiExtractor.locateSubjectPublicKeyInfo(null));
+        assertEquals(
+                SpkiExtractor.NOT_FOUND, SpkiExtractor.locateSubjectPublicKeyInfo(new byte[0]));
+        assertEquals(
+                SpkiExtractor.NOT_FOUND,
+                SpkiExtractor.locateSubjectPublicKeyInfo(new byte[] {0x30, (byte) 0x80, 0, 0}));
+
+        // Truncated certificates
+        byte[] der = testCertChain.get(0).getEncoded();
+        for (int length : new int[] {1, 4, 16, 64, 128, 256}) {
+            assertEquals(
+                    SpkiExtractor.NOT_FOUND,
+                    SpkiExtractor.locateSubjectPublicKeyInfo(Arrays.copyOf(der, length)));
+        }
+
+        // Not a certificate
+        byte[] garbage = new byte[512];
+        Arrays.fill(garbage, (byte) 0x30);
+        assertEquals(SpkiExtractor.NOT_FOUND, SpkiExtractor.locateSubjectPublicKeyInfo(garbage));
+    }
+}
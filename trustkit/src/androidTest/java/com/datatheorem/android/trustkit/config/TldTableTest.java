@@ -0,0 +1,97 @@
+package com.datatheorem.android.trustkit.config;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Test;
+
+public class TldTableTest {
+
+    @After
+    public void tearDown() {
+        DomainValidator.clearTLDOverrides();
+    }
+
+    @Test
+    public void testContains() {
+        String[] entries = {"com", "fr", "museum", "xn--p1ai"};
+        TldTable table = new TldTable(entries);
+
+        assertTrue(table.contains("com", 0, 3));
+        assertTrue(table.contains("COM", 0, 3));
+        assertTrue(table.contains("www.test.Museum.", 9, 15));
+        assertTrue(table.contains("xn--P1AI", 0, 8));
+        assertFalse(table.contains("co", 0, 2));
+        assertFalse(table.contains("comm", 0, 4));
+        assertFalse(table.contains("", 0, 0));
+        assertFalse(table.contains("fré", 0, 3));
+
+        assertTrue(Arrays.equals(entries, table.toArray()));
+        assertFalse(new TldTable(new String[0]).contains("com", 0, 3));
+    }
+
+    @Test
+    public void testPackedEntries() {
+        TldTable table = new TldTable("com fr xn--p1ai");
+        assertTrue(table.contains("fr", 0, 2));
+        assertTrue(table.contains("xn--p1ai", 0, 8));
+        assertFalse(table.contains("com fr", 0, 6));
+        assertTrue(Arrays.equals(new String[] {"com", "fr", "xn--p1ai"}, table.toArray()));
+        assertEquals(0, new TldTable("").toArray().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyPackedEntry() {
+        new TldTable("com  fr");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUpperCaseEntry() {
+        new TldTable(new String[] {"COM"});
+    }
+
+    @Test
+    public void testBuiltInTables() {
+        DomainValidator validator = DomainValidator.getInstance();
+        String[] genericTlds = DomainValidator.getTLDEntries(DomainValidator.ArrayType.GENERIC_RO);
+        String[] countryCodeTlds =
+                DomainValidator.getTLDEntries(DomainValidator.ArrayType.COUNTRY_CODE_RO);
+        assertEquals(999, genericTlds.length);
+        assertEquals(292, countryCodeTlds.length);
+
+        // The entries are still returned sorted, and are all found
+        String[] sortedTlds = genericTlds.clone();
+        Arrays.sort(sortedTlds);
+        assertTrue(Arrays.equals(sortedTlds, genericTlds));
+        for (String tld : genericTlds) {
+            assertTrue(tld, validator.isValidGenericTld(tld));
+            assertTrue(tld, validator.isValid("www.test." + tld.toUpperCase()));
+        }
+        for (String tld : countryCodeTlds) {
+            assertTrue(tld, validator.isValidCountryCodeTld("." + tld));
+            assertTrue(tld, validator.isValid("test." + tld + "."));
+        }
+        assertFalse(validator.isValid("www.test.notatld"));
+    }
+
+    @Test
+    public void testOverrides() {
+        DomainValidator.clearTLDOverrides();
+        DomainValidator.updateTLDOverride(
+                DomainValidator.ArrayType.GENERIC_PLUS, new String[] {"Internal"});
+        DomainValidator.updateTLDOverride(
+                DomainValidator.ArrayType.GENERIC_MINUS, new String[] {"com"});
+        DomainValidator validator = DomainValidator.getInstance();
+
+        assertTrue(validator.isValid("www.test.internal"));
+        assertTrue(validator.isValid("www.test.INTERNAL"));
+        assertFalse(validator.isValid("www.test.com"));
+        assertTrue(
+                Arrays.equals(
+                        new String[] {"internal"},
+                        DomainValidator.getTLDEntries(DomainValidator.ArrayType.GENERIC_PLUS)));
+    }
+}
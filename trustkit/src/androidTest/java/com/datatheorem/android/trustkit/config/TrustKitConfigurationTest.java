@@ -4,6 +4,7 @@ import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 
 import android.content.Context;
@@ -179,6 +180,76 @@ public class TrustKitConfigurationTest {
         assertTrue(domainConfig.shouldEnforcePinning());
     }
 
+    @Test
+    public void testBackgroundValidationAndSampleRate()
+            throws XmlPullParserException, IOException, ParseException, CertificateException {
+        Context context = InstrumentationRegistry.getInstrumentation().getContext();
+        String xml =
+                ""
+                        + "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+                        + "<network-security-config>\n"
+                        + "    <domain-config>\n"
+                        + "        <domain>datatheorem.com</domain>\n"
+                        + "        <pin-set>\n"
+                        + "            <pin digest=\"SHA-256\">AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=</pin>\n"
+                        + "            <pin digest=\"SHA-256\">grX4Ta9HpZx6tSHkmCrvpApTQGo67CYDnvprLg5yRME=</pin>\n"
+                        + "        </pin-set>\n"
+                        + "        <trustkit-config backgroundValidation=\"true\" validationSampleRate=\"0.25\">\n"
+                        + "        </trustkit-config>\n"
+                        + "        <domain-config>\n"
+                        + "            <domain>www.datatheorem.com</domain>\n"
+                        + "        </domain-config>\n"
+                        + "    </domain-config>\n"
+                        + "    <domain-config>\n"
+                        + "        <domain>www.other.com</domain>\n"
+                        + "        <pin-set>\n"
+                        + "            <pin digest=\"SHA-256\">AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=</pin>\n"
+                        + "            <pin digest=\"SHA-256\">grX4Ta9HpZx6tSHkmCrvpApTQGo67CYDnvprLg5yRME=</pin>\n"
+                        + "        </pin-set>\n"
+                        + "    </domain-config>\n"
+                        + "</network-security-config>";
+        TrustKitConfiguration config =
+                TrustKitConfiguration.fromXmlPolicy(context, parseXmlString(xml));
+
+        DomainPinningPolicy domainConfig = config.getPolicyForHostname("datatheorem.com");
+        assertNotNull(domainConfig);
+        assertTrue(domainConfig.shouldValidateInBackground());
+        assertEquals(0.25f, domainConfig.getValidationSampleRate());
+
+        // The nested domain-config inherits the settings
+        domainConfig = config.getPolicyForHostname("www.datatheorem.com");
+        assertNotNull(domainConfig);
+        assertTrue(domainConfig.shouldValidateInBackground());
+        assertEquals(0.25f, domainConfig.getValidationSampleRate());
+
+        // By default every handshake gets validated synchronously
+        domainConfig = config.getPolicyForHostname("www.other.com");
+        assertNotNull(domainConfig);
+        assertFalse(domainConfig.shouldValidateInBackground());
+        assertEquals(1f, domainConfig.getValidationSampleRate());
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testInvalidValidationSampleRate()
+            throws XmlPullParserException, IOException, ParseException, CertificateException {
+        Context context = InstrumentationRegistry.getInstrumentation().getContext();
+        String xml =
+                ""
+                        + "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+                        + "<network-security-config>\n"
+                        + "    <domain-config>\n"
+                        + "        <domain>www.datatheorem.com</domain>\n"
+                        + "        <pin-set>\n"
+                        + "            <pin digest=\"SHA-256\">AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=</pin>\n"
+                        + "            <pin digest=\"SHA-256\">grX4Ta9HpZx6tSHkmCrvpApTQGo67CYDnvprLg5yRME=</pin>\n"
+                        + "        </pin-set>\n"
+                        + "        <trustkit-config validationSampleRate=\"half\">\n"
+                        + "        </trustkit-config>\n"
+                        + "    </domain-config>\n"
+                        + "</network-security-config>";
+        TrustKitConfiguration.fromXmlPolicy(context, parseXmlString(xml));
+    }
+
     @Test
     public void testExpirationDate()
             throws XmlPullParserException, IOException, ParseException, CertificateException {
@@ -440,6 +511,10 @@ public class TrustKitConfigurationTest {
         domainConfig = config.getPolicyForHostname("unrelated.domain.com");
         assertNotNull(domainConfig);
         assertEquals(expectedPins, domainConfig.getPublicKeyPins());
+        // The inherited pins are shared with the parent domain-config
+        assertSame(
+                config.getPolicyForHostname("datatheorem.com").getPublicKeyPins(),
+                domainConfig.getPublicKeyPins());
 
         HashSet<URL> expectedUnrelatedUri =
                 new HashSet<URL>() {
@@ -0,0 +1,45 @@
+package com.datatheorem.android.trustkit.pinning;
+
+import static com.datatheorem.android.trustkit.CertificateUtils.testCertChain;
+import static com.datatheorem.android.trustkit.CertificateUtils.testCertChainPem;
+import static junit.framework.Assert.assertEquals;
+
+import com.datatheorem.android.trustkit.CertificateUtils;
+import com.datatheorem.android.trustkit.config.PublicKeyPin;
+import java.security.cert.Certificate;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CertificatePinCacheTest {
+
+    @Before
+    public void setUp() {
+        CertificatePinCache.clear();
+    }
+
+    @Test
+    public void testPinMatchesComputedPin() {
+        for (Certificate certificate : testCertChain) {
+            assertEquals(new PublicKeyPin(certificate), CertificatePinCache.getPin(certificate));
+        }
+    }
+
+    @Test
+    public void testSameCertificateIsOnlyHashedOnce() {
+        int initialHitCount = CertificatePinCache.getHitCount();
+        int initialMissCount = CertificatePinCache.getMissCount();
+
+        // The first lookup computes the pin
+        PublicKeyPin firstPin = CertificatePinCache.getPin(testCertChain.get(0));
+        assertEquals(initialMissCount + 1, CertificatePinCache.getMissCount());
+        assertEquals(initialHitCount, CertificatePinCache.getHitCount());
+
+        // A different instance of the same certificate, as received in a new SSL handshake, hits
+        // the cache
+        Certificate sameCertificate = CertificateUtils.certificateFromPem(testCertChainPem.get(0));
+        PublicKeyPin secondPin = CertificatePinCache.getPin(sameCertificate);
+        assertEquals(initialMissCount + 1, CertificatePinCache.getMissCount());
+        assertEquals(initialHitCount + 1, CertificatePinCache.getHitCount());
+        assertEquals(firstPin, secondPin);
+    }
+}
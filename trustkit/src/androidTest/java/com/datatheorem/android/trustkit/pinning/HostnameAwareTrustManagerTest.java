@@ -0,0 +1,123 @@
+package com.datatheorem.android.trustkit.pinning;
+
+import static com.datatheorem.android.trustkit.CertificateUtils.testCertChain;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.os.Build;
+import androidx.test.platform.app.InstrumentationRegistry;
+import com.datatheorem.android.trustkit.TestableTrustKit;
+import com.datatheorem.android.trustkit.config.DomainPinningPolicy;
+import com.datatheorem.android.trustkit.reporting.BackgroundReporter;
+import java.net.MalformedURLException;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.HashSet;
+import java.util.Set;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class HostnameAwareTrustManagerTest {
+
+    private final X509Certificate[] chain = testCertChain.toArray(new X509Certificate[0]);
+
+    @Mock private BackgroundReporter mockReporter;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        TestableTrustKit.reset();
+    }
+
+    @Test
+    public void testHandshakeWithoutHostnameIsRejected() {
+        if (Build.VERSION.SDK_INT < 24) {
+            // X509ExtendedTrustManager is only available on Android N
+            return;
+        }
+        SSLSocket socket = newSocket(null);
+        boolean wasRejected = false;
+        try {
+            new HostnameAwareTrustManager().checkServerTrusted(chain, "RSA", socket);
+        } catch (CertificateException e) {
+            wasRejected = true;
+        }
+        assertTrue(wasRejected);
+    }
+
+    @Test
+    public void testValidationWithoutHandshakeIsRejected() {
+        if (Build.VERSION.SDK_INT < 24) {
+            // X509ExtendedTrustManager is only available on Android N
+            return;
+        }
+        boolean wasRejected = false;
+        try {
+            new HostnameAwareTrustManager().checkServerTrusted(chain, "RSA");
+        } catch (CertificateException e) {
+            wasRejected = true;
+        }
+        assertTrue(wasRejected);
+    }
+
+    @Test
+    public void testSubdomainWithUnderscoreOfPinnedDomainIsPinned() throws MalformedURLException {
+        if (Build.VERSION.SDK_INT < 24) {
+            // X509ExtendedTrustManager is only available on Android N
+            return;
+        }
+        Set<DomainPinningPolicy> policies = new HashSet<>();
+        policies.add(
+                new DomainPinningPolicy.Builder()
+                        .setHostname("test.com")
+                        .setShouldIncludeSubdomains(true)
+                        .setShouldEnforcePinning(true)
+                        .setPublicKeyHashes(
+                                new HashSet<String>() {
+                                    {
+                                        add("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=");
+                                        add("BBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBB=");
+                                    }
+                                })
+                        .build());
+        Context context = InstrumentationRegistry.getInstrumentation().getContext();
+        TestableTrustKit.init(policies, context, mockReporter);
+
+        boolean wasRejected = false;
+        try {
+            new HostnameAwareTrustManager()
+                    .checkServerTrusted(chain, "RSA", newSocket("my_api.test.com"));
+        } catch (CertificateException e) {
+            wasRejected = true;
+        }
+        assertTrue(wasRejected);
+
+        // The domain's policy was applied instead of only doing the default SSL validation
+        verify(mockReporter)
+                .pinValidationFailed(
+                        eq("my_api.test.com"),
+                        eq(0),
+                        anyListOf(X509Certificate.class),
+                        anyListOf(X509Certificate.class),
+                        any(DomainPinningPolicy.class),
+                        any(PinningValidationResult.class));
+    }
+
+    private static SSLSocket newSocket(String peerHostname) {
+        SSLSession session = mock(SSLSession.class);
+        when(session.getPeerHost()).thenReturn(peerHostname);
+        SSLSocket socket = mock(SSLSocket.class);
+        when(socket.getHandshakeSession()).thenReturn(session);
+        return socket;
+    }
+}
@@ -0,0 +1,69 @@
+package com.datatheorem.android.trustkit.pinning;
+
+import static com.datatheorem.android.trustkit.CertificateUtils.testCertChain;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import com.datatheorem.android.trustkit.config.DomainPinningPolicy;
+import com.datatheorem.android.trustkit.config.PublicKeyPin;
+import java.net.MalformedURLException;
+import java.util.HashSet;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PinMatchOrderingTest {
+
+    private static final PublicKeyPin backupPin =
+            new PublicKeyPin("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=");
+
+    private PublicKeyPin intermediatePin;
+    private DomainPinningPolicy policy;
+
+    @Before
+    public void setUp() throws MalformedURLException {
+        CertificatePinCache.clear();
+        intermediatePin = new PublicKeyPin(testCertChain.get(1));
+        policy =
+                new DomainPinningPolicy.Builder()
+                        .setHostname("test.com")
+                        .setPublicKeyHashes(
+                                new HashSet<String>() {
+                                    {
+                                        add(backupPin.toString());
+                                        add(intermediatePin.toString());
+                                    }
+                                })
+                        .build();
+    }
+
+    @Test
+    public void testLastMatchedPositionIsProbedFirst() {
+        // The first validation walks up from the leaf and finds the pin on the intermediate
+        assertEquals(0, policy.getLastMatchedChainPosition());
+        int initialMissCount = CertificatePinCache.getMissCount();
+        assertTrue(PinningTrustManager.isPinInChain(testCertChain, policy));
+        assertEquals(1, policy.getLastMatchedChainPosition());
+        assertEquals(initialMissCount + 2, CertificatePinCache.getMissCount());
+
+        // The next validation starts with the intermediate and does not need the leaf's pin
+        CertificatePinCache.clear();
+        initialMissCount = CertificatePinCache.getMissCount();
+        assertTrue(PinningTrustManager.isPinInChain(testCertChain, policy));
+        assertEquals(initialMissCount + 1, CertificatePinCache.getMissCount());
+    }
+
+    @Test
+    public void testPinHitCounts() {
+        assertTrue(PinningTrustManager.isPinInChain(testCertChain, policy));
+        assertTrue(PinningTrustManager.isPinInChain(testCertChain, policy));
+        assertFalse(PinningTrustManager.isPinInChain(testCertChain.subList(0, 1), policy));
+
+        Map<PublicKeyPin, Long> pinHitCounts = policy.getPinHitCounts();
+        assertEquals(2, pinHitCounts.size());
+        assertEquals(Long.valueOf(2), pinHitCounts.get(intermediatePin));
+        // The backup pin never got used
+        assertEquals(Long.valueOf(0), pinHitCounts.get(backupPin));
+    }
+}
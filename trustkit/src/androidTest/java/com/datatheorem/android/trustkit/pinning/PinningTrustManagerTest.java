@@ -0,0 +1,166 @@
+package com.datatheorem.android.trustkit.pinning;
+
+import static com.datatheorem.android.trustkit.CertificateUtils.testCertChain;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.net.http.X509TrustManagerExtensions;
+import android.os.Build;
+import com.datatheorem.android.trustkit.config.DomainPinningPolicy;
+import com.datatheorem.android.trustkit.reporting.BackgroundReporter;
+import java.net.MalformedURLException;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.HashSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class PinningTrustManagerTest {
+
+    private final X509Certificate[] chain = testCertChain.toArray(new X509Certificate[0]);
+
+    @Mock private BackgroundReporter mockReporter;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        TestableTrustManagerBuilder.setReporter(mockReporter);
+    }
+
+    @After
+    public void tearDown() {
+        TestableTrustManagerBuilder.setReporter(null);
+    }
+
+    @Test
+    public void testPatternPolicyWithFailingParentPinSet()
+            throws MalformedURLException, CertificateException {
+        if (Build.VERSION.SDK_INT < 24) {
+            // Only the Android N netsec policy does pinning validation
+            return;
+        }
+        // The pattern is not part of the netsec policy, but a pin-set of google.com including its
+        // subdomains is and rejects the chain
+        DomainPinningPolicy policy =
+                new DomainPinningPolicy.Builder()
+                        .setHostname("ma*l.google.com")
+                        .setShouldEnforcePinning(true)
+                        .setExpirationDate(new Date(System.currentTimeMillis() + 3600 * 1000))
+                        .setPublicKeyHashes(
+                                new HashSet<String>() {
+                                    {
+                                        add("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=");
+                                        add("BBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBB=");
+                                    }
+                                })
+                        .build();
+        X509TrustManagerExtensions baselineTrustManager = mock(X509TrustManagerExtensions.class);
+        when(baselineTrustManager.checkServerTrusted(
+                        any(X509Certificate[].class), anyString(), anyString()))
+                .thenThrow(new CertificateException("Pin verification failed"));
+
+        PinningTrustManager trustManager =
+                new PinningTrustManager("mail.google.com", policy, baselineTrustManager, null);
+        boolean didReceivePinningError = false;
+        try {
+            trustManager.checkServerTrusted(chain, "ECDHE_ECDSA");
+        } catch (CertificateException e) {
+            didReceivePinningError = e.getMessage().startsWith("Pin verification failed");
+        }
+        assertTrue(didReceivePinningError);
+
+        // The failure gets reported as a pinning failure
+        verify(mockReporter)
+                .pinValidationFailed(
+                        eq("mail.google.com"),
+                        eq(0),
+                        eq(testCertChain),
+                        eq(testCertChain),
+                        eq(policy),
+                        eq(PinningValidationResult.FAILED));
+    }
+
+    @Test
+    public void testSampledOutHandshakeStillReportsChainValidationFailure()
+            throws MalformedURLException, CertificateException {
+        // Given a report-only policy which never evaluates the pins
+        DomainPinningPolicy policy = newReportOnlyPolicy(0f);
+        // And a chain that fails path validation
+        X509TrustManagerExtensions baselineTrustManager = mock(X509TrustManagerExtensions.class);
+        when(baselineTrustManager.checkServerTrusted(
+                        any(X509Certificate[].class), anyString(), anyString()))
+                .thenThrow(new CertificateException("Trust anchor not found"));
+
+        PinningTrustManager trustManager =
+                new PinningTrustManager("mail.google.com", policy, baselineTrustManager, null);
+        boolean didReceiveValidationError = false;
+        try {
+            trustManager.checkServerTrusted(chain, "ECDHE_ECDSA");
+        } catch (CertificateException e) {
+            didReceiveValidationError = true;
+        }
+        assertTrue(didReceiveValidationError);
+
+        // The failure still gets reported
+        verify(mockReporter)
+                .pinValidationFailed(
+                        eq("mail.google.com"),
+                        eq(0),
+                        eq(testCertChain),
+                        eq(testCertChain),
+                        eq(policy),
+                        eq(PinningValidationResult.FAILED_CERTIFICATE_CHAIN_NOT_TRUSTED));
+    }
+
+    @Test
+    public void testSampledOutHandshakeDoesNotReportPinMismatch()
+            throws MalformedURLException, CertificateException {
+        // Given a report-only policy which never evaluates the pins, none of which are in the chain
+        DomainPinningPolicy policy = newReportOnlyPolicy(0f);
+        X509TrustManagerExtensions baselineTrustManager = mock(X509TrustManagerExtensions.class);
+        when(baselineTrustManager.checkServerTrusted(
+                        any(X509Certificate[].class), anyString(), anyString()))
+                .thenReturn(testCertChain);
+
+        new PinningTrustManager("mail.google.com", policy, baselineTrustManager, null)
+                .checkServerTrusted(chain, "ECDHE_ECDSA");
+
+        verify(mockReporter, never())
+                .pinValidationFailed(
+                        anyString(),
+                        anyInt(),
+                        anyListOf(X509Certificate.class),
+                        anyListOf(X509Certificate.class),
+                        any(DomainPinningPolicy.class),
+                        any(PinningValidationResult.class));
+    }
+
+    private static DomainPinningPolicy newReportOnlyPolicy(float validationSampleRate)
+            throws MalformedURLException {
+        return new DomainPinningPolicy.Builder()
+                .setHostname("mail.google.com")
+                .setShouldEnforcePinning(false)
+                .setValidationSampleRate(validationSampleRate)
+                .setExpirationDate(new Date(System.currentTimeMillis() + 3600 * 1000))
+                .setPublicKeyHashes(
+                        new HashSet<String>() {
+                            {
+                                add("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=");
+                                add("BBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBB=");
+                            }
+                        })
+                .build();
+    }
+}
@@ -0,0 +1,131 @@
+package com.datatheorem.android.trustkit.pinning;
+
+import static com.datatheorem.android.trustkit.CertificateUtils.testCertChain;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.os.Debug;
+import com.datatheorem.android.trustkit.config.DomainPinningPolicy;
+import com.datatheorem.android.trustkit.config.PublicKeyPin;
+import java.net.MalformedURLException;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Ensures that {@link PinningTrustManager} does not allocate when validating a chain that was
+ * recently validated, and that its pinning validation of a successful handshake does not allocate
+ * either.
+ *
+ * <p>The JVM's {@code ThreadMXBean} is not available on Android, so allocations are counted using
+ * the runtime's per-thread allocation counters instead.
+ */
+@SuppressWarnings("deprecation")
+public class PinningValidationAllocationTest {
+
+    private static final int ITERATIONS = 10000;
+
+    // Allow for a few allocations done by the runtime itself while counting; anything done for each
+    // validation would add up to at least ITERATIONS allocations
+    private static final int MAX_ALLOCATIONS = 50;
+
+    private final X509Certificate[] chain = testCertChain.toArray(new X509Certificate[0]);
+
+    private DomainPinningPolicy policy;
+
+    @Before
+    public void setUp() throws MalformedURLException {
+        CertificatePinCache.clear();
+        // Only pin the intermediate certificate so that the whole chain gets looked at
+        final String intermediatePin = new PublicKeyPin(testCertChain.get(1)).toString();
+        policy =
+                new DomainPinningPolicy.Builder()
+                        .setHostname("test.com")
+                        .setShouldIncludeSubdomains(true)
+                        .setShouldEnforcePinning(true)
+                        .setExpirationDate(new Date(System.currentTimeMillis() + 3600 * 1000))
+                        .setPublicKeyHashes(
+                                new HashSet<String>() {
+                                    {
+                                        add("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=");
+                                        add(intermediatePin);
+                                    }
+                                })
+                        .build();
+    }
+
+    @Test
+    public void testCachedChainValidationDoesNotAllocate() throws CertificateException {
+        ValidatedChainCache cache = new ValidatedChainCache(TimeUnit.HOURS.toMillis(1));
+        PinningTrustManager trustManager =
+                new PinningTrustManager("www.test.com", policy, null, cache);
+        // The test chain's certificates have expired, so cache a validated chain that has not
+        X509Certificate validatedCertificate = mock(X509Certificate.class);
+        when(validatedCertificate.getNotAfter())
+                .thenReturn(new Date(System.currentTimeMillis() + 3600 * 1000));
+        cache.putValidated(
+                "www.test.com", policy, chain, Collections.singletonList(validatedCertificate));
+
+        // Warm up the trust manager and the cache's lookup key
+        for (int i = 0; i < 10; i++) {
+            trustManager.checkServerTrusted(chain, "RSA");
+        }
+
+        int allocationCount;
+        Debug.startAllocCounting();
+        try {
+            Debug.resetThreadAllocCount();
+            for (int i = 0; i < ITERATIONS; i++) {
+                // Any validation beyond the cache lookup would fail without a baseline trust
+                // manager
+                trustManager.checkServerTrusted(chain, "RSA");
+            }
+            allocationCount = Debug.getThreadAllocCount();
+        } finally {
+            Debug.stopAllocCounting();
+        }
+        assertEquals(ITERATIONS + 10, cache.getHitCount());
+        assertTrue(
+                "Cached chain validation allocated: " + allocationCount,
+                allocationCount < MAX_ALLOCATIONS);
+    }
+
+    @Test
+    public void testSuccessfulPinningValidationDoesNotAllocate() {
+        // Warm up the pin cache
+        for (int i = 0; i < 10; i++) {
+            assertTrue(validatePins());
+        }
+
+        int allocationCount;
+        boolean allSucceeded = true;
+        Debug.startAllocCounting();
+        try {
+            Debug.resetThreadAllocCount();
+            for (int i = 0; i < ITERATIONS; i++) {
+                allSucceeded &= validatePins();
+            }
+            allocationCount = Debug.getThreadAllocCount();
+        } finally {
+            Debug.stopAllocCounting();
+        }
+        assertTrue(allSucceeded);
+        assertTrue(
+                "Pinning validation allocated: " + allocationCount,
+                allocationCount < MAX_ALLOCATIONS);
+    }
+
+    // The pinning validation done by PinningTrustManager once path validation has succeeded
+    private boolean validatePins() {
+        assertFalse(policy.hasExpired());
+        return PinningTrustManager.isPinInChain(testCertChain, policy);
+    }
+}
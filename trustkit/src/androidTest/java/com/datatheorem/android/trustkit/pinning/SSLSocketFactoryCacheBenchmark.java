@@ -0,0 +1,151 @@
+package com.datatheorem.android.trustkit.pinning;
+
+import android.os.Build;
+import android.util.Log;
+import androidx.test.platform.app.InstrumentationRegistry;
+import com.datatheorem.android.trustkit.Benchmark;
+import com.datatheorem.android.trustkit.TestableTrustKit;
+import com.datatheorem.android.trustkit.TrustKit;
+import com.datatheorem.android.trustkit.reporting.BackgroundReporter;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * Measures the handshake rate to a pinned server when the App fetches an {@code SSLSocketFactory}
+ * for each connection, with the factories cached by {@link TrustKit#getSSLSocketFactory(String)}
+ * and with a new {@code SSLContext} for each connection as was done before. Also compares the
+ * per-hostname factories with the single hostname-aware factory available on Android N.
+ *
+ * <p>Like {@link SSLSocketFactoryTest}, this connects to a live server as TrustKit requires a
+ * certificate chain that the device trusts. Results are written to logcat.
+ */
+@Benchmark
+public class SSLSocketFactoryCacheBenchmark {
+
+    private static final String SERVER_HOSTNAME = "www.datatheorem.com";
+
+    // A pinned and a non-pinned server, for comparing per-hostname and hostname-aware factories
+    private static final String[] SERVER_HOSTNAMES = {"www.datatheorem.com", "www.google.com"};
+    private static final int HANDSHAKES = 20;
+
+    @Mock private BackgroundReporter mockReporter;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        TestableTrustKit.reset();
+        TestableTrustKit.initializeWithNetworkSecurityConfiguration(
+                InstrumentationRegistry.getInstrumentation().getContext(), mockReporter);
+    }
+
+    @Test
+    public void benchmarkHandshakes() throws IOException, GeneralSecurityException {
+        // Warm up the connection to the server and the pinning validation caches
+        doHandshake(TrustKit.getInstance().getSSLSocketFactory(SERVER_HOSTNAME), SERVER_HOSTNAME);
+
+        Result uncached = new Result();
+        for (int i = 0; i < HANDSHAKES; i++) {
+            SSLContext sslContext =
+                    TrustManagerBuilder.newSSLContext(
+                            TrustKit.getInstance().getTrustManager(SERVER_HOSTNAME));
+            uncached.add(doHandshake(sslContext.getSocketFactory(), SERVER_HOSTNAME));
+        }
+
+        Result cached = new Result();
+        for (int i = 0; i < HANDSHAKES; i++) {
+            cached.add(
+                    doHandshake(
+                            TrustKit.getInstance().getSSLSocketFactory(SERVER_HOSTNAME),
+                            SERVER_HOSTNAME));
+        }
+
+        Log.i(
+                "TrustKit",
+                String.format(
+                        "%d handshakes - new SSLContext: %.1f/s (%d resumed), cached factory:"
+                                + " %.1f/s (%d resumed)",
+                        HANDSHAKES,
+                        uncached.getHandshakesPerSecond(),
+                        uncached.resumedCount,
+                        cached.getHandshakesPerSecond(),
+                        cached.resumedCount));
+    }
+
+    @Test
+    public void benchmarkHostnameAwareSocketFactory() throws IOException {
+        if (Build.VERSION.SDK_INT < 24) {
+            // The hostname-aware SSLSocketFactory is only available on Android N
+            return;
+        }
+        // Warm up the connections to the servers and the pinning validation caches
+        for (String serverHostname : SERVER_HOSTNAMES) {
+            doHandshake(TrustKit.getInstance().getSSLSocketFactory(serverHostname), serverHostname);
+            doHandshake(TrustKit.getInstance().getSSLSocketFactory(), serverHostname);
+        }
+
+        Result perHostname = new Result();
+        Result hostnameAware = new Result();
+        for (int i = 0; i < HANDSHAKES; i++) {
+            String serverHostname = SERVER_HOSTNAMES[i % SERVER_HOSTNAMES.length];
+            perHostname.add(
+                    doHandshake(
+                            TrustKit.getInstance().getSSLSocketFactory(serverHostname),
+                            serverHostname));
+            hostnameAware.add(
+                    doHandshake(TrustKit.getInstance().getSSLSocketFactory(), serverHostname));
+        }
+
+        Log.i(
+                "TrustKit",
+                String.format(
+                        "%d handshakes - per-hostname factories: %.1f/s (%d resumed),"
+                                + " hostname-aware factory: %.1f/s (%d resumed)",
+                        HANDSHAKES,
+                        perHostname.getHandshakesPerSecond(),
+                        perHostname.resumedCount,
+                        hostnameAware.getHandshakesPerSecond(),
+                        hostnameAware.resumedCount));
+    }
+
+    // Connect to the server and return the handshake's duration, negative if the session was
+    // resumed
+    private static long doHandshake(SSLSocketFactory socketFactory, String serverHostname)
+            throws IOException {
+        long startTimeMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        SSLSocket socket = (SSLSocket) socketFactory.createSocket(serverHostname, 443);
+        try {
+            socket.startHandshake();
+            long duration = System.nanoTime() - start;
+            // A resumed session was created by an earlier handshake
+            return (socket.getSession().getCreationTime() < startTimeMillis) ? -duration : duration;
+        } finally {
+            socket.close();
+        }
+    }
+
+    private static final class Result {
+        private long totalDurationNanos = 0;
+        private int handshakeCount = 0;
+        private int resumedCount = 0;
+
+        void add(long duration) {
+            if (duration < 0) {
+                resumedCount++;
+            }
+            totalDurationNanos += Math.abs(duration);
+            handshakeCount++;
+        }
+
+        double getHandshakesPerSecond() {
+            return handshakeCount * 1e9 / totalDurationNanos;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.datatheorem.android.trustkit.pinning;
 
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
@@ -13,6 +15,7 @@ import android.os.Build;
 import androidx.test.platform.app.InstrumentationRegistry;
 import com.datatheorem.android.trustkit.CertificateUtils;
 import com.datatheorem.android.trustkit.TestableTrustKit;
+import com.datatheorem.android.trustkit.TrustKitOptions;
 import com.datatheorem.android.trustkit.config.DomainPinningPolicy;
 import com.datatheorem.android.trustkit.reporting.BackgroundReporter;
 import com.google.android.gms.common.GooglePlayServicesNotAvailableException;
@@ -20,11 +23,13 @@ import com.google.android.gms.common.GooglePlayServicesRepairableException;
 import com.google.android.gms.security.ProviderInstaller;
 import java.io.IOException;
 import java.net.Socket;
+import java.security.NoSuchAlgorithmException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.HashSet;
 import java.util.List;
+import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLHandshakeException;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
@@ -691,6 +696,162 @@ public class SSLSocketFactoryTest {
                         any(PinningValidationResult.class));
     }
 
+    @Test
+    public void testBestTlsVersionIsUsedByDefault() throws IOException {
+        if (Build.VERSION.SDK_INT < 29) {
+            // TLS 1.3 is only available on Android 10
+            return;
+        }
+        String serverHostname = "www.google.com";
+        TestableTrustKit.initializeWithNetworkSecurityConfiguration(
+                InstrumentationRegistry.getInstrumentation().getContext(), mockReporter);
+
+        SSLSocketFactory test = TestableTrustKit.getInstance().getSSLSocketFactory(serverHostname);
+        SSLSocket socket = (SSLSocket) createSocketAndStartHandshake(test, serverHostname);
+        assertEquals("TLSv1.3", socket.getSession().getProtocol());
+        socket.close();
+    }
+
+    @Test
+    public void testPinnedDomainSuccessWithBestTlsVersion()
+            throws IOException, NoSuchAlgorithmException {
+        if (Build.VERSION.SDK_INT < 29) {
+            // TLS 1.3 is only available on Android 10
+            return;
+        }
+        String serverHostname = "www.datatheorem.com";
+        TestableTrustKit.initializeWithNetworkSecurityConfiguration(
+                InstrumentationRegistry.getInstrumentation().getContext(), mockReporter);
+
+        // The pinned connection uses the same TLS version as the platform's default SSLContext
+        SSLSocketFactory test = TestableTrustKit.getInstance().getSSLSocketFactory(serverHostname);
+        SSLSocket socket = (SSLSocket) createSocketAndStartHandshake(test, serverHostname);
+        assertEquals(getDefaultTlsVersion(serverHostname), socket.getSession().getProtocol());
+        socket.close();
+
+        // Ensure the background reporter was NOT called
+        verify(mockReporter, never())
+                .pinValidationFailed(
+                        anyString(),
+                        anyInt(),
+                        (List<X509Certificate>) any(),
+                        (List<X509Certificate>) any(),
+                        any(DomainPinningPolicy.class),
+                        any(PinningValidationResult.class));
+    }
+
+    @Test
+    public void testPinnedDomainInvalidPinWithBestTlsVersion()
+            throws IOException, NoSuchAlgorithmException {
+        if (Build.VERSION.SDK_INT < 29) {
+            // TLS 1.3 is only available on Android 10
+            return;
+        }
+        String serverHostname = "www.yahoo.com";
+        assertEquals("TLSv1.3", getDefaultTlsVersion(serverHostname));
+        TestableTrustKit.initializeWithNetworkSecurityConfiguration(
+                InstrumentationRegistry.getInstrumentation().getContext(), mockReporter);
+
+        // Create a TrustKit SocketFactory and ensure the TLS 1.3 connection fails
+        SSLSocketFactory test = TestableTrustKit.getInstance().getSSLSocketFactory(serverHostname);
+        boolean didReceivePinningError = false;
+        try {
+            createSocketAndStartHandshake(test, serverHostname).close();
+        } catch (SSLHandshakeException e) {
+            if ((e.getCause() instanceof CertificateException
+                    && (e.getCause().getMessage().startsWith("Pin verification failed")))) {
+                didReceivePinningError = true;
+            }
+        }
+        assertTrue(didReceivePinningError);
+
+        // Ensure the background reporter was called
+        verify(mockReporter)
+                .pinValidationFailed(
+                        eq(serverHostname),
+                        eq(0),
+                        (List<X509Certificate>) org.mockito.Matchers.isNotNull(),
+                        (List<X509Certificate>) org.mockito.Matchers.isNotNull(),
+                        eq(
+                                TestableTrustKit.getInstance()
+                                        .getConfiguration()
+                                        .getPolicyForHostname(serverHostname)),
+                        eq(PinningValidationResult.FAILED));
+    }
+
+    // The TLS version negotiated with the server by the platform's default SSLContext
+    private static String getDefaultTlsVersion(String serverHostname)
+            throws IOException, NoSuchAlgorithmException {
+        SSLSocket socket =
+                (SSLSocket)
+                        createSocketAndStartHandshake(
+                                SSLContext.getDefault().getSocketFactory(), serverHostname);
+        try {
+            return socket.getSession().getProtocol();
+        } finally {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void testTlsVersionCanBeRestricted() throws IOException {
+        String serverHostname = "www.google.com";
+        TestableTrustKit.initializeWithNetworkSecurityConfiguration(
+                InstrumentationRegistry.getInstrumentation().getContext(),
+                new TrustKitOptions.Builder().setSslContextProtocol("TLSv1.2").build(),
+                mockReporter);
+
+        SSLSocketFactory test = TestableTrustKit.getInstance().getSSLSocketFactory(serverHostname);
+        SSLSocket socket = (SSLSocket) createSocketAndStartHandshake(test, serverHostname);
+        assertEquals("TLSv1.2", socket.getSession().getProtocol());
+        socket.close();
+    }
+
+    @Test
+    public void testHostnameAwareSocketFactory() throws IOException {
+        if (Build.VERSION.SDK_INT < 24) {
+            // The hostname-aware SSLSocketFactory is only available on Android N
+            return;
+        }
+        TestableTrustKit.initializeWithNetworkSecurityConfiguration(
+                InstrumentationRegistry.getInstrumentation().getContext(), mockReporter);
+
+        // The same factory is used for a pinned domain and a non-pinned domain
+        SSLSocketFactory test = TestableTrustKit.getInstance().getSSLSocketFactory();
+        assertSame(test, TestableTrustKit.getInstance().getSSLSocketFactory());
+        Socket socket = createSocketAndStartHandshake(test, "datatheorem.com");
+        assertTrue(socket.isConnected());
+        socket.close();
+        socket = createSocketAndStartHandshake(test, "www.google.com");
+        assertTrue(socket.isConnected());
+        socket.close();
+
+        // The pinning policy of the server's hostname is enforced
+        String serverHostname = "www.yahoo.com";
+        boolean didReceivePinningError = false;
+        try {
+            createSocketAndStartHandshake(test, serverHostname).close();
+        } catch (SSLHandshakeException e) {
+            if ((e.getCause() instanceof CertificateException
+                    && (e.getCause().getMessage().startsWith("Pin verification failed")))) {
+                didReceivePinningError = true;
+            }
+        }
+        assertTrue(didReceivePinningError);
+
+        verify(mockReporter)
+                .pinValidationFailed(
+                        eq(serverHostname),
+                        eq(0),
+                        (List<X509Certificate>) org.mockito.Matchers.isNotNull(),
+                        (List<X509Certificate>) org.mockito.Matchers.isNotNull(),
+                        eq(
+                                TestableTrustKit.getInstance()
+                                        .getConfiguration()
+                                        .getPolicyForHostname(serverHostname)),
+                        eq(PinningValidationResult.FAILED));
+    }
+
     @Test
     public void testDebugOverrides() throws IOException, CertificateException {
         if (Build.VERSION.SDK_INT >= 24) {
@@ -1,5 +1,6 @@
 package com.datatheorem.android.trustkit.pinning;
 
+import com.datatheorem.android.trustkit.TrustKitOptions;
 import com.datatheorem.android.trustkit.reporting.BackgroundReporter;
 
 public class TestableTrustManagerBuilder extends TrustManagerBuilder {
@@ -11,5 +12,9 @@ public class TestableTrustManagerBuilder extends TrustManagerBuilder {
     public static void reset() {
         baselineTrustManager = null;
         shouldOverridePins = false;
+        baselineTrustManagerExtensions = null;
+        validatedChainCache = null;
+        pinningTrustManagers.evictAll();
+        sslContextProtocol = TrustKitOptions.DEFAULT_SSL_CONTEXT_PROTOCOL;
     }
 }
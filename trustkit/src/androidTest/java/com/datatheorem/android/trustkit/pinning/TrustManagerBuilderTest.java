@@ -0,0 +1,89 @@
+package com.datatheorem.android.trustkit.pinning;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+
+import android.content.Context;
+import android.os.Build;
+import androidx.test.platform.app.InstrumentationRegistry;
+import com.datatheorem.android.trustkit.TestableTrustKit;
+import com.datatheorem.android.trustkit.config.DomainPinningPolicy;
+import com.datatheorem.android.trustkit.reporting.BackgroundReporter;
+import java.net.MalformedURLException;
+import java.util.HashSet;
+import java.util.Set;
+import javax.net.ssl.X509TrustManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class TrustManagerBuilderTest {
+
+    @Mock private BackgroundReporter mockReporter;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        TestableTrustKit.reset();
+    }
+
+    @Test
+    public void testTrustManagerIsReusedForSameHostnameAndPolicy() throws MalformedURLException {
+        if (Build.VERSION.SDK_INT < 17) {
+            // No pinning validation at all for API level before 17
+            return;
+        }
+        initTrustKit();
+
+        X509TrustManager trustManager = TrustManagerBuilder.getTrustManager("www.test.com");
+        assertSame(trustManager, TrustManagerBuilder.getTrustManager("www.test.com"));
+        assertNotSame(trustManager, TrustManagerBuilder.getTrustManager("api.test.com"));
+
+        // Another spelling of the same hostname gets its own trust manager, which reports the
+        // hostname as supplied, and replaces the previous one in the cache
+        X509TrustManager otherSpellingTrustManager =
+                TrustManagerBuilder.getTrustManager("WWW.Test.com");
+        assertNotSame(trustManager, otherSpellingTrustManager);
+        assertSame(otherSpellingTrustManager, TrustManagerBuilder.getTrustManager("WWW.Test.com"));
+        assertEquals(2, TrustManagerBuilder.pinningTrustManagers.size());
+
+        // Hostnames that are not pinned get the baseline trust manager
+        assertSame(
+                TrustManagerBuilder.baselineTrustManager,
+                TrustManagerBuilder.getTrustManager("www.unpinned.com"));
+    }
+
+    @Test
+    public void testTrustManagerIsNotReusedForNewConfiguration() throws MalformedURLException {
+        if (Build.VERSION.SDK_INT < 17) {
+            // No pinning validation at all for API level before 17
+            return;
+        }
+        initTrustKit();
+        X509TrustManager trustManager = TrustManagerBuilder.getTrustManager("www.test.com");
+
+        TestableTrustKit.reset();
+        initTrustKit();
+        assertNotSame(trustManager, TrustManagerBuilder.getTrustManager("www.test.com"));
+    }
+
+    private void initTrustKit() throws MalformedURLException {
+        Set<DomainPinningPolicy> policies = new HashSet<>();
+        policies.add(
+                new DomainPinningPolicy.Builder()
+                        .setHostname("test.com")
+                        .setShouldIncludeSubdomains(true)
+                        .setPublicKeyHashes(
+                                new HashSet<String>() {
+                                    {
+                                        add("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=");
+                                        add("BBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBB=");
+                                    }
+                                })
+                        .build());
+        Context context = InstrumentationRegistry.getInstrumentation().getContext();
+        TestableTrustKit.init(policies, context, mockReporter);
+    }
+}
@@ -0,0 +1,141 @@
+package com.datatheorem.android.trustkit.pinning;
+
+import static com.datatheorem.android.trustkit.CertificateUtils.certificateFromPem;
+import static com.datatheorem.android.trustkit.CertificateUtils.testCertChain;
+import static com.datatheorem.android.trustkit.CertificateUtils.testCertChainPem;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.datatheorem.android.trustkit.config.DomainPinningPolicy;
+import java.net.MalformedURLException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ValidatedChainCacheTest {
+
+    private static final long ONE_HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private DomainPinningPolicy policy;
+
+    @Before
+    public void setUp() throws MalformedURLException {
+        policy = newPolicy(null);
+    }
+
+    @Test
+    public void testValidatedChainIsCached() {
+        ValidatedChainCache cache = new ValidatedChainCache(ONE_HOUR);
+        X509Certificate[] chain = newServedChain();
+
+        assertFalse(cache.wasValidated("www.test.com", policy, chain));
+        cache.putValidated("www.test.com", policy, chain, newValidatedChain());
+        assertTrue(cache.wasValidated("www.test.com", policy, chain));
+
+        // The same chain received in a new handshake hits the cache
+        assertTrue(cache.wasValidated("www.test.com", policy, newServedChain()));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testDifferentChainHostnameOrPolicyIsNotCached() throws MalformedURLException {
+        ValidatedChainCache cache = new ValidatedChainCache(ONE_HOUR);
+        X509Certificate[] chain = newServedChain();
+        cache.putValidated("www.test.com", policy, chain, newValidatedChain());
+
+        X509Certificate[] leafOnly = {chain[0]};
+        assertFalse(cache.wasValidated("www.test.com", policy, leafOnly));
+        X509Certificate[] reversedChain = {chain[1], chain[0]};
+        assertFalse(cache.wasValidated("www.test.com", policy, reversedChain));
+        assertFalse(cache.wasValidated("other.test.com", policy, chain));
+        // A new configuration does not reuse previous verdicts
+        assertFalse(cache.wasValidated("www.test.com", newPolicy(null), chain));
+    }
+
+    @Test
+    public void testChangesToTheServedChainDoNotAffectTheCache() {
+        ValidatedChainCache cache = new ValidatedChainCache(ONE_HOUR);
+        X509Certificate[] chain = newServedChain();
+        cache.putValidated("www.test.com", policy, chain, newValidatedChain());
+
+        X509Certificate leaf = chain[0];
+        chain[0] = chain[1];
+        assertFalse(cache.wasValidated("www.test.com", policy, chain));
+        chain[0] = leaf;
+        assertTrue(cache.wasValidated("www.test.com", policy, chain));
+    }
+
+    @Test
+    public void testExpiredCertificateIsNotCached() {
+        ValidatedChainCache cache = new ValidatedChainCache(ONE_HOUR);
+        // The test chain's certificates have expired
+        X509Certificate[] chain = newServedChain();
+
+        cache.putValidated("www.test.com", policy, chain, testCertChain);
+        assertFalse(cache.wasValidated("www.test.com", policy, chain));
+    }
+
+    @Test
+    public void testEntriesExpire() throws MalformedURLException, InterruptedException {
+        X509Certificate[] chain = newServedChain();
+        List<X509Certificate> validatedChain = newValidatedChain();
+
+        // Expiration of the TTL
+        ValidatedChainCache cache = new ValidatedChainCache(50);
+        cache.putValidated("www.test.com", policy, chain, validatedChain);
+
+        // Expiration of the pinning policy
+        DomainPinningPolicy expiringPolicy = newPolicy(new Date(System.currentTimeMillis() + 50));
+        ValidatedChainCache longCache = new ValidatedChainCache(ONE_HOUR);
+        longCache.putValidated("www.test.com", expiringPolicy, chain, validatedChain);
+
+        Thread.sleep(100);
+        assertFalse(cache.wasValidated("www.test.com", policy, chain));
+        assertFalse(longCache.wasValidated("www.test.com", expiringPolicy, chain));
+    }
+
+    // A new instance of the chain served by the server, as received in each handshake
+    private static X509Certificate[] newServedChain() {
+        X509Certificate[] chain = new X509Certificate[testCertChainPem.size()];
+        for (int i = 0; i < chain.length; i++) {
+            chain[i] = (X509Certificate) certificateFromPem(testCertChainPem.get(i));
+        }
+        return chain;
+    }
+
+    // The test chain's certificates have expired, so use ones that have not for the validated chain
+    private static List<X509Certificate> newValidatedChain() {
+        List<X509Certificate> validatedChain = new ArrayList<>();
+        for (int i = 0; i < testCertChain.size(); i++) {
+            X509Certificate certificate = mock(X509Certificate.class);
+            when(certificate.getNotAfter())
+                    .thenReturn(new Date(System.currentTimeMillis() + 24 * ONE_HOUR));
+            validatedChain.add(certificate);
+        }
+        return validatedChain;
+    }
+
+    private static DomainPinningPolicy newPolicy(Date expirationDate) throws MalformedURLException {
+        return new DomainPinningPolicy.Builder()
+                .setHostname("test.com")
+                .setShouldIncludeSubdomains(true)
+                .setPublicKeyHashes(
+                        new HashSet<String>() {
+                            {
+                                add("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=");
+                                add("BBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBB=");
+                            }
+                        })
+                .setExpirationDate(expirationDate)
+                .build();
+    }
+}
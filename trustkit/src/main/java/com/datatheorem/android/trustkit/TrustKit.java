@@ -4,8 +4,13 @@ import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.os.Build;
+import android.util.LruCache;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 import com.datatheorem.android.trustkit.config.ConfigurationException;
+import com.datatheorem.android.trustkit.config.DomainPinningPolicy;
+import com.datatheorem.android.trustkit.config.HostnameNormalizer;
 import com.datatheorem.android.trustkit.config.TrustKitConfiguration;
 import com.datatheorem.android.trustkit.pinning.TrustManagerBuilder;
 import com.datatheorem.android.trustkit.reporting.BackgroundReporter;
@@ -17,10 +22,13 @@ import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
-import javax.net.ssl.SSLContext;
+import java.util.concurrent.Executor;
+import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLSocketFactory;
-import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 import org.xmlpull.v1.XmlPullParserException;
 
@@ -147,8 +155,24 @@ public class TrustKit {
 
     protected static TrustKit trustKitInstance;
 
+    // The maximum number of pinned hostnames to keep an SSLSocketFactory for
+    private static final int MAX_CACHED_SOCKET_FACTORIES = 64;
+
     private final TrustKitConfiguration trustKitConfiguration;
 
+    // The SSLSocketFactory returned for each pinned hostname, keyed by canonical hostname. Each one
+    // has its own SSLContext, and therefore its own TLS session cache, so that a session validated
+    // against a hostname's pinning policy is only ever resumed for that hostname
+    private final LruCache<String, SSLSocketFactory> pinnedSocketFactories =
+            new LruCache<>(MAX_CACHED_SOCKET_FACTORIES);
+
+    // The SSLSocketFactory returned for all hostnames without a pinning policy, which only get the
+    // default SSL validation
+    @Nullable private volatile SSLSocketFactory unpinnedSocketFactory = null;
+
+    // The SSLSocketFactory returned for connections to any server
+    @Nullable private volatile SSLSocketFactory hostnameAwareSocketFactory = null;
+
     protected TrustKit(
             @NonNull Context context, @NonNull TrustKitConfiguration trustKitConfiguration) {
         this(context, trustKitConfiguration, new TrustKitOptions.Builder().build());
@@ -195,7 +219,7 @@ public class TrustKit {
         // Initialize the trust manager builder
         try {
             TrustManagerBuilder.initializeBaselineTrustManager(
-                    debugCaCerts, shouldOverridePins, reporter);
+                    debugCaCerts, shouldOverridePins, reporter, options);
         } catch (CertificateException
                 | NoSuchAlgorithmException
                 | KeyStoreException
@@ -337,17 +361,128 @@ public class TrustKit {
      * different domain. However, pinning validation is only meant to be used on the App's API
      * server(s), and redirections to other domains should not happen in this scenario.
      *
+     * <p>The same {@code SSLSocketFactory} is returned for each call with the same serverHostname,
+     * so that TLS sessions can be resumed across connections instead of requiring a full handshake
+     * for each one. Hostnames without a pinning policy all share the same {@code SSLSocketFactory}.
+     *
      * @param serverHostname the server's hostname that the {@code SSLSocketFactory} will be used to
      *     connect to. This hostname will be used to retrieve the pinning policy from the current
      *     TrustKit configuration.
      */
     @NonNull
     public SSLSocketFactory getSSLSocketFactory(@NonNull String serverHostname) {
-        try {
-            SSLContext sslContext = SSLContext.getInstance("TLSv1.2");
-            sslContext.init(null, new TrustManager[] {getTrustManager(serverHostname)}, null);
+        String canonicalHostname = HostnameNormalizer.normalize(serverHostname);
+        SSLSocketFactory socketFactory = pinnedSocketFactories.get(canonicalHostname);
+        if (socketFactory != null) {
+            return socketFactory;
+        }
+
+        DomainPinningPolicy serverConfig =
+                trustKitConfiguration.getPolicyIndex().getPolicyForHostname(serverHostname);
+        if (serverConfig == null) {
+            // The trust manager does not depend on the hostname
+            socketFactory = unpinnedSocketFactory;
+            if (socketFactory == null) {
+                socketFactory = newSSLSocketFactory(getTrustManager(serverHostname));
+                unpinnedSocketFactory = socketFactory;
+            }
+            return socketFactory;
+        }
+
+        // Two threads may both create a factory for the same hostname; either one can be used
+        socketFactory = newSSLSocketFactory(getTrustManager(serverHostname));
+        pinnedSocketFactories.put(canonicalHostname, socketFactory);
+        return socketFactory;
+    }
+
+    /**
+     * Retrieve an {@code SSLSocketFactory} that implements SSL pinning validation based on the
+     * current TrustKit configuration, for connections to any server. The pinning policy enforced
+     * for a connection is the one for the server's hostname, as found in the SSL handshake being
+     * validated, including after a redirection to a different domain.
+     *
+     * <p>The same {@code SSLSocketFactory} is returned for each call, so that all of the App's
+     * connections share a single TLS session cache. It requires Android N, which gives access to
+     * the SSL handshake when validating the server's certificate chain; on earlier versions of
+     * Android, use {@link #getSSLSocketFactory(String)}.
+     */
+    @NonNull
+    @RequiresApi(api = 24)
+    public SSLSocketFactory getSSLSocketFactory() {
+        SSLSocketFactory socketFactory = hostnameAwareSocketFactory;
+        if (socketFactory == null) {
+            socketFactory = newSSLSocketFactory(getTrustManager());
+            hostnameAwareSocketFactory = socketFactory;
+        }
+        return socketFactory;
+    }
+
+    /**
+     * Set the {@code SSLSocketFactory} returned by {@link #getSSLSocketFactory()} as the default
+     * for all {@code HttpsURLConnection} instances created afterwards, so that SSL pinning
+     * validation gets added to them without having to configure each connection. Requires Android
+     * N.
+     */
+    @RequiresApi(api = 24)
+    public void installAsHttpsURLConnectionDefault() {
+        HttpsURLConnection.setDefaultSSLSocketFactory(getSSLSocketFactory());
+    }
 
-            return sslContext.getSocketFactory();
+    /**
+     * Build and cache, on the supplied executor, everything TrustKit needs for the first SSL
+     * connections to the supplied hostnames: their pinning policy, their {@code X509TrustManager}
+     * and their {@code SSLSocketFactory}, including the creation of the underlying {@code
+     * SSLContext}. On Android N and later, the {@code SSLSocketFactory} returned by {@link
+     * #getSSLSocketFactory()} is also created.
+     *
+     * <p>This moves this work off the first network requests done by the App. It is safe to call
+     * this method from any thread once TrustKit has been initialized. A hostname that cannot be
+     * prewarmed, for example because it is invalid, is logged and skipped.
+     *
+     * @param hostnames the hostnames the App is about to connect to.
+     * @param executor the executor to do the work on, such as {@code
+     *     AsyncTask.THREAD_POOL_EXECUTOR}.
+     */
+    public void prewarm(@NonNull Collection<String> hostnames, @NonNull Executor executor) {
+        final List<String> hostnamesToPrewarm = new ArrayList<>(hostnames);
+        executor.execute(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        prewarm(hostnamesToPrewarm);
+                    }
+                });
+    }
+
+    private void prewarm(@NonNull List<String> hostnames) {
+        for (String hostname : hostnames) {
+            try {
+                // Resolves and caches the policy, the trust manager and the socket factory
+                getSSLSocketFactory(hostname);
+            } catch (RuntimeException e) {
+                // Still prewarm the other hostnames
+                TrustKitLog.w("Skipped prewarming " + hostname + ": " + e);
+            }
+        }
+        if (Build.VERSION.SDK_INT >= 24) {
+            try {
+                getSSLSocketFactory();
+            } catch (RuntimeException e) {
+                TrustKitLog.w("Skipped prewarming the hostname-aware SSLSocketFactory: " + e);
+            }
+        }
+    }
+
+    // Retrieve the factory already built for the supplied pinned hostname, if any; used in tests
+    @Nullable
+    SSLSocketFactory getCachedSSLSocketFactory(@NonNull String serverHostname) {
+        return pinnedSocketFactories.get(HostnameNormalizer.normalize(serverHostname));
+    }
+
+    @NonNull
+    private static SSLSocketFactory newSSLSocketFactory(@NonNull X509TrustManager trustManager) {
+        try {
+            return TrustManagerBuilder.newSSLContext(trustManager).getSocketFactory();
         } catch (NoSuchAlgorithmException | KeyManagementException e) {
             e.printStackTrace();
             throw new IllegalStateException("Should not happen");
@@ -373,4 +508,17 @@ public class TrustKit {
     public X509TrustManager getTrustManager(@NonNull String serverHostname) {
         return TrustManagerBuilder.getTrustManager(serverHostname);
     }
+
+    /**
+     * Retrieve an {@code X509TrustManager} that implements SSL pinning validation based on the
+     * current TrustKit configuration, for connections to any server. The pinning policy enforced
+     * for a connection is the one for the server's hostname, as found in the SSL handshake being
+     * validated. Requires Android N; on earlier versions of Android, use {@link
+     * #getTrustManager(String)}.
+     */
+    @NonNull
+    @RequiresApi(api = 24)
+    public X509TrustManager getTrustManager() {
+        return TrustManagerBuilder.getHostnameAwareTrustManager();
+    }
 }
@@ -1,17 +1,36 @@
 package com.datatheorem.android.trustkit
 
 import java.net.URL
+import java.security.NoSuchAlgorithmException
 import java.util.Collections
 import java.util.LinkedHashMap
+import java.util.concurrent.TimeUnit
+import javax.net.ssl.SSLContext
 
 class TrustKitOptions
-private constructor(val defaultReportUrl: URL?, defaultReportHeaders: Map<String, String>) {
+private constructor(
+    val defaultReportUrl: URL?,
+    defaultReportHeaders: Map<String, String>,
+    /**
+     * How long a successfully validated certificate chain is remembered for a hostname, in
+     * milliseconds. 0 means validated chains are not cached, which is the default.
+     */
+    val validatedChainCacheTtlMillis: Long,
+    /**
+     * The protocol of the `SSLContext` created for pinned connections;
+     * [DEFAULT_SSL_CONTEXT_PROTOCOL] by default, which enables the best TLS versions supported by
+     * the device.
+     */
+    val sslContextProtocol: String
+) {
     val defaultReportHeaders: Map<String, String> =
         Collections.unmodifiableMap(LinkedHashMap(defaultReportHeaders))
 
     class Builder {
         private var defaultReportUrl: URL? = null
         private val defaultReportHeaders = linkedMapOf<String, String>()
+        private var validatedChainCacheTtlMillis = 0L
+        private var sslContextProtocol = DEFAULT_SSL_CONTEXT_PROTOCOL
 
         fun setDefaultReportUrl(defaultReportUrl: URL): Builder = apply {
             val protocol = defaultReportUrl.protocol
@@ -28,11 +47,49 @@ private constructor(val defaultReportUrl: URL?, defaultReportHeaders: Map<String
             defaultReportHeaders[name] = value
         }
 
+        /**
+         * Remember successfully validated certificate chains for the supplied duration, so that
+         * new connections to a pinned domain serving the exact same chain skip path building and
+         * pin matching. An entry never outlives the certificates in the chain nor the expiration
+         * date of the domain's pinning policy.
+         */
+        fun setValidatedChainCacheTtl(duration: Long, unit: TimeUnit): Builder = apply {
+            require(duration >= 0) { "The validated chain cache TTL must not be negative" }
+            validatedChainCacheTtlMillis = unit.toMillis(duration)
+        }
+
+        /**
+         * Restrict the TLS versions used for pinned connections by using the supplied `SSLContext`
+         * protocol, such as `TLSv1.2` to not use TLS 1.3, instead of the default
+         * [DEFAULT_SSL_CONTEXT_PROTOCOL].
+         */
+        fun setSslContextProtocol(protocol: String): Builder = apply {
+            try {
+                SSLContext.getInstance(protocol)
+            } catch (e: NoSuchAlgorithmException) {
+                throw IllegalArgumentException("Unsupported SSLContext protocol: $protocol", e)
+            }
+            sslContextProtocol = protocol
+        }
+
         fun build(): TrustKitOptions {
             check(!(defaultReportHeaders.isNotEmpty() && defaultReportUrl == null)) {
                 "A default report URL must be configured before adding report headers"
             }
-            return TrustKitOptions(defaultReportUrl, defaultReportHeaders)
+            return TrustKitOptions(
+                defaultReportUrl,
+                defaultReportHeaders,
+                validatedChainCacheTtlMillis,
+                sslContextProtocol
+            )
         }
     }
+
+    companion object {
+        /**
+         * The default `SSLContext` protocol, which enables all the TLS versions supported by the
+         * device, including TLS 1.3 on Android 10 and later.
+         */
+        const val DEFAULT_SSL_CONTEXT_PROTOCOL = "TLS"
+    }
 }
@@ -0,0 +1,114 @@
+package com.datatheorem.android.trustkit.config;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable snapshot of the pinning policies of a {@link TrustKitConfiguration}, compiled once
+ * when the configuration is created, which is all the SSL validation code needs to read.
+ *
+ * <p>It holds the policies, each with its pre-parsed pins and pre-computed expiration time, the
+ * index used to look up the policy for a hostname, and the results of recent lookups. As the lookup
+ * results belong to the snapshot, replacing the configuration replaces all of them at once.
+ */
+public final class CompiledPolicyIndex {
+
+    @NonNull private final Set<DomainPinningPolicy> domainPolicies;
+
+    // Index of the policies used to look up the policy for a hostname
+    @NonNull private final DomainPolicyTrie domainPolicyTrie;
+
+    // Recent lookups by canonical hostname, including hostnames without a policy
+    private static final int MAX_CACHED_LOOKUPS = 128;
+    private static final Object NO_POLICY = new Object();
+
+    @NonNull
+    private final ConcurrentHashMap<String, Object> policyLookupCache = new ConcurrentHashMap<>();
+
+    CompiledPolicyIndex(@NonNull Set<DomainPinningPolicy> domainConfigSet) {
+        Set<String> hostnameSet = new HashSet<>();
+        for (DomainPinningPolicy domainConfig : domainConfigSet) {
+            // Hostnames that only differ in case or encoding are the same domain
+            if (hostnameSet.contains(domainConfig.getCanonicalHostname())) {
+                throw new ConfigurationException(
+                        "Policy contains the same domain defined twice: "
+                                + domainConfig.getHostname());
+            }
+            hostnameSet.add(domainConfig.getCanonicalHostname());
+        }
+        // Take a copy so that changes to the supplied set cannot affect lookups
+        this.domainPolicies = Collections.unmodifiableSet(new LinkedHashSet<>(domainConfigSet));
+        this.domainPolicyTrie = new DomainPolicyTrie(this.domainPolicies);
+    }
+
+    /** Return all the policies, which cannot be modified. */
+    @NonNull
+    public Set<DomainPinningPolicy> getAllPolicies() {
+        return domainPolicies;
+    }
+
+    /**
+     * Get the {@link DomainPinningPolicy} corresponding to the provided hostname. When matching the
+     * most specific matching domain rule will be used, if no match exists then null will be
+     * returned.
+     *
+     * @param serverHostname the server's hostname
+     * @return DomainPinningPolicy the domain's policy or null if the supplied hostname has no
+     *     policy defined
+     */
+    @Nullable
+    public DomainPinningPolicy getPolicyForHostname(@NonNull String serverHostname) {
+        // Lookups are done using the canonical form of the hostname
+        String canonicalHostname = HostnameNormalizer.normalize(serverHostname);
+        Object cachedPolicy = policyLookupCache.get(canonicalHostname);
+        if (cachedPolicy != null) {
+            // Only valid hostnames get cached
+            return (cachedPolicy == NO_POLICY) ? null : (DomainPinningPolicy) cachedPolicy;
+        }
+
+        DomainPinningPolicy policy = domainPolicyTrie.getPolicyForHostname(canonicalHostname);
+        if ((policy == null) || !policy.getCanonicalHostname().equals(canonicalHostname)) {
+            // Check if the hostname seems valid; the hostname of a policy was already validated
+            // when the policy was created
+            DomainValidator domainValidator = DomainValidator.getInstance(true);
+
+            if (!domainValidator.isValid(canonicalHostname)) {
+                throw new IllegalArgumentException("Invalid domain supplied: " + serverHostname);
+            }
+        }
+
+        if (policyLookupCache.size() >= MAX_CACHED_LOOKUPS) {
+            // A miss only costs a walk of the trie, so start over instead of tracking the least
+            // recently used hostname on every lookup
+            policyLookupCache.clear();
+        }
+        policyLookupCache.put(canonicalHostname, (policy == null) ? NO_POLICY : policy);
+        return policy;
+    }
+
+    /**
+     * Same as {@link #getPolicyForHostname(String)}, for a hostname that was not supplied by the
+     * App but received during a TLS handshake. Such a hostname is not required to be a valid domain
+     * name, so that a subdomain of a pinned domain the validator rejects, for example because one
+     * of its labels contains an underscore, still gets the pinned domain's policy.
+     *
+     * @param peerHostname the server's hostname, as found in the TLS session
+     * @return DomainPinningPolicy the domain's policy or null if the supplied hostname has no
+     *     policy defined
+     */
+    @Nullable
+    public DomainPinningPolicy getPolicyForPeerHostname(@NonNull String peerHostname) {
+        try {
+            return getPolicyForHostname(peerHostname);
+        } catch (IllegalArgumentException e) {
+            // Not cached as only valid hostnames get cached
+            return domainPolicyTrie.getPolicyForHostname(
+                    HostnameNormalizer.normalize(peerHostname));
+        }
+    }
+}
@@ -7,7 +7,10 @@ import java.net.URL;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 public final class DomainPinningPolicy {
 
@@ -25,11 +28,22 @@ public final class DomainPinningPolicy {
     }
 
     @NonNull private final String hostname;
+    @NonNull private final String canonicalHostname;
+    private final boolean isHostnamePattern;
     private final boolean shouldIncludeSubdomains;
-    @NonNull private final Set<PublicKeyPin> publicKeyPins;
+    @NonNull private final PublicKeyPinSet publicKeyPins;
     @Nullable private final Date expirationDate;
+    // The expiration date as epoch milliseconds, so that checking it does not allocate
+    private final long expirationTimeMillis;
     private final boolean shouldEnforcePinning;
     @NonNull private final Set<URL> reportUris;
+    private final boolean shouldValidateInBackground;
+    private final float validationSampleRate;
+
+    // Pinning validation statistics: the position in the verified chain where a pin was last
+    // found, which is probed first next time, and how many times each pin was found
+    private volatile int lastMatchedChainPosition = 0;
+    @NonNull private final AtomicLongArray pinHitCounts;
 
     DomainPinningPolicy(
             @NonNull String hostname,
@@ -61,13 +75,78 @@ public final class DomainPinningPolicy {
             Boolean shouldDisableDefaultReportUri,
             @Nullable URL defaultReportUrl)
             throws MalformedURLException {
+        this(
+                hostname,
+                shouldIncludeSubdomains,
+                publicKeyHashStrList,
+                shouldEnforcePinning,
+                expirationDate,
+                reportUriStrList,
+                shouldDisableDefaultReportUri,
+                defaultReportUrl,
+                null,
+                null);
+    }
+
+    DomainPinningPolicy(
+            @NonNull String hostname,
+            Boolean shouldIncludeSubdomains,
+            Set<String> publicKeyHashStrList,
+            Boolean shouldEnforcePinning,
+            @Nullable Date expirationDate,
+            @Nullable Set<String> reportUriStrList,
+            Boolean shouldDisableDefaultReportUri,
+            @Nullable URL defaultReportUrl,
+            @Nullable Boolean shouldValidateInBackground,
+            @Nullable Float validationSampleRate)
+            throws MalformedURLException {
+        this(
+                hostname,
+                shouldIncludeSubdomains,
+                publicKeyHashStrList,
+                shouldEnforcePinning,
+                expirationDate,
+                reportUriStrList,
+                shouldDisableDefaultReportUri,
+                defaultReportUrl,
+                shouldValidateInBackground,
+                validationSampleRate,
+                new PolicyValueInterner());
+    }
+
+    DomainPinningPolicy(
+            @NonNull String hostname,
+            Boolean shouldIncludeSubdomains,
+            Set<String> publicKeyHashStrList,
+            Boolean shouldEnforcePinning,
+            @Nullable Date expirationDate,
+            @Nullable Set<String> reportUriStrList,
+            Boolean shouldDisableDefaultReportUri,
+            @Nullable URL defaultReportUrl,
+            @Nullable Boolean shouldValidateInBackground,
+            @Nullable Float validationSampleRate,
+            @NonNull PolicyValueInterner interner)
+            throws MalformedURLException {
         // Run some sanity checks on the configuration
-        // Check if the hostname seems valid
+        // Check if the hostname seems valid; a hostname pattern has to be valid once its wildcards
+        // are replaced, and its top-level domain cannot be a pattern
+        this.isHostnamePattern = hostname.indexOf(LabelPatternMatcher.WILDCARD) >= 0;
+        String hostnameToValidate = hostname;
+        if (this.isHostnamePattern) {
+            if (hostname.indexOf(LabelPatternMatcher.WILDCARD, hostname.lastIndexOf('.') + 1)
+                    >= 0) {
+                throw new ConfigurationException(
+                        "Tried to pin a domain pattern with a wildcard top-level domain: "
+                                + hostname);
+            }
+            hostnameToValidate = hostname.replace(LabelPatternMatcher.WILDCARD, 'a');
+        }
         DomainValidator domainValidator = DomainValidator.getInstance();
-        if (!domainValidator.isValid(hostname)) {
+        if (!domainValidator.isValid(hostnameToValidate)) {
             throw new ConfigurationException("Tried to pin an invalid domain: " + hostname);
         }
         this.hostname = hostname.trim();
+        this.canonicalHostname = HostnameNormalizer.normalize(this.hostname);
 
         // Due to the fact some configurations could be added without any pin (e.g. localhost)
         // the publicKeyHashStrList would be null.
@@ -110,26 +189,48 @@ public final class DomainPinningPolicy {
                             + "./docs/getting-started.md");
         }
 
-        // Parse the supplied pins
-        publicKeyPins = new HashSet<>();
-        for (String pinStr : publicKeyHashStrList) {
-            publicKeyPins.add(new PublicKeyPin(pinStr));
+        // Background validation and sampling are only possible when the result of pinning
+        // validation cannot block the connection
+        if (shouldValidateInBackground == null) {
+            this.shouldValidateInBackground = false;
+        } else {
+            this.shouldValidateInBackground = shouldValidateInBackground;
         }
-
-        // Parse the supplied report URLs
-        reportUris = new HashSet<>();
-        if (reportUriStrList != null) {
-            for (String UriStr : reportUriStrList) {
-                reportUris.add(new URL(UriStr));
-            }
+        if (validationSampleRate == null) {
+            this.validationSampleRate = 1;
+        } else {
+            this.validationSampleRate = validationSampleRate;
+        }
+        if (!((this.validationSampleRate >= 0) && (this.validationSampleRate <= 1))) {
+            throw new ConfigurationException(
+                    "The validation sample rate for domain "
+                            + this.hostname
+                            + " must be between 0 and 1");
+        }
+        if (this.shouldEnforcePinning
+                && (this.shouldValidateInBackground || (this.validationSampleRate < 1))) {
+            throw new ConfigurationException(
+                    "Background validation and sampling cannot be used for domain "
+                            + this.hostname
+                            + " as it enforces pinning");
         }
 
-        // Add the default report URL
+        // Parse the supplied pins and report URLs; policies parsed together share them
+        publicKeyPins = interner.internPins(publicKeyHashStrList);
+        pinHitCounts = new AtomicLongArray(publicKeyPins.size());
         if ((shouldDisableDefaultReportUri == null) || (!shouldDisableDefaultReportUri)) {
-            reportUris.add(defaultReportUrl != null ? defaultReportUrl : DEFAULT_REPORTING_URL);
+            // Add the default report URL
+            reportUris =
+                    interner.internReportUris(
+                            reportUriStrList,
+                            defaultReportUrl != null ? defaultReportUrl : DEFAULT_REPORTING_URL);
+        } else {
+            reportUris = interner.internReportUris(reportUriStrList, null);
         }
 
         this.expirationDate = expirationDate;
+        this.expirationTimeMillis =
+                (expirationDate != null) ? expirationDate.getTime() : Long.MAX_VALUE;
     }
 
     @NonNull
@@ -137,15 +238,78 @@ public final class DomainPinningPolicy {
         return hostname;
     }
 
+    /**
+     * Whether the hostname is a pattern, where a {@code *} in a label matches any sequence of
+     * characters within that label. Android's Network Security Configuration does not support
+     * patterns, so pinning validation for these hostnames is always done by TrustKit.
+     */
+    public boolean isHostnamePattern() {
+        return isHostnamePattern;
+    }
+
+    /** The hostname in the form returned by {@link HostnameNormalizer#normalize(String)}. */
+    @NonNull
+    String getCanonicalHostname() {
+        return canonicalHostname;
+    }
+
+    /**
+     * Get the pins configured for this domain. The returned set is immutable and looking up a pin
+     * in it does not allocate.
+     */
     @NonNull
     public Set<PublicKeyPin> getPublicKeyPins() {
         return publicKeyPins;
     }
 
+    /**
+     * Check if the supplied pin, found at the supplied position in a server's verified certificate
+     * chain, is one of the pins configured for this domain. If it is, the match gets recorded in
+     * the policy's statistics.
+     */
+    public boolean matchPin(@NonNull PublicKeyPin pin, int chainPosition) {
+        int pinIndex = publicKeyPins.indexOf(pin);
+        if (pinIndex < 0) {
+            return false;
+        }
+        pinHitCounts.incrementAndGet(pinIndex);
+        if (lastMatchedChainPosition != chainPosition) {
+            lastMatchedChainPosition = chainPosition;
+        }
+        return true;
+    }
+
+    /**
+     * Get the position in the server's verified certificate chain where one of the pins was last
+     * found, starting at 0 for the leaf certificate. This is where pinning validation looks first.
+     */
+    public int getLastMatchedChainPosition() {
+        return lastMatchedChainPosition;
+    }
+
+    /**
+     * Get the number of times each pin was found in a server's verified certificate chain. Pins
+     * that never get used, such as backup pins, have a count of 0. The pins are not in any
+     * particular order, and in particular not in the order they were configured.
+     *
+     * <p>Pinning validation is done by the OS on Android N and later, so the counts are only
+     * updated on earlier versions of Android, or for hostname patterns.
+     */
+    @NonNull
+    public Map<PublicKeyPin, Long> getPinHitCounts() {
+        Map<PublicKeyPin, Long> hitCounts = new LinkedHashMap<>();
+        int pinIndex = 0;
+        for (PublicKeyPin pin : publicKeyPins) {
+            hitCounts.put(pin, pinHitCounts.get(pinIndex++));
+        }
+        return hitCounts;
+    }
+
     public boolean shouldEnforcePinning() {
         return shouldEnforcePinning;
     }
 
+    /** Get the URLs pin failure reports are sent to. The returned set is immutable. */
     @NonNull
     public Set<URL> getReportUris() {
         return reportUris;
@@ -155,11 +319,36 @@ public final class DomainPinningPolicy {
         return shouldIncludeSubdomains;
     }
 
+    /**
+     * Whether pinning validation and pin failure reporting should be done on a background thread
+     * instead of during the SSL handshake. Only possible when pinning is not enforced, as the
+     * result cannot block the connection; path and hostname validation are always done during the
+     * handshake.
+     */
+    public boolean shouldValidateInBackground() {
+        return shouldValidateInBackground;
+    }
+
+    /**
+     * The fraction of SSL handshakes, between 0 and 1, for which pinning validation should be done.
+     * Always 1 when pinning is enforced. Handshakes that are not sampled only get path and hostname
+     * validation: a failure of these is still reported, but a pin mismatch is never detected and
+     * therefore never reported.
+     */
+    public float getValidationSampleRate() {
+        return validationSampleRate;
+    }
+
     @Nullable
     public Date getExpirationDate() {
         return expirationDate;
     }
 
+    /** Check if the policy's expiration date, if any, has passed. */
+    public boolean hasExpired() {
+        return expirationTimeMillis < System.currentTimeMillis();
+    }
+
     @NonNull
     @Override
     public String toString() {
@@ -193,10 +382,16 @@ public final class DomainPinningPolicy {
         private Boolean shouldEnforcePinning;
         private Set<String> reportUris;
         private Boolean shouldDisableDefaultReportUri;
+        private Boolean shouldValidateInBackground;
+        private Float validationSampleRate;
 
         // The parent domain-config
         private Builder parentBuilder = null;
 
+        // Shares the values of the policies built from this builder and its descendants; only set
+        // on the root builder
+        private PolicyValueInterner interner = null;
+
         @Nullable
         public DomainPinningPolicy build() throws MalformedURLException {
             return build(null);
@@ -204,6 +399,29 @@ public final class DomainPinningPolicy {
 
         @Nullable
         DomainPinningPolicy build(@Nullable URL defaultReportUrl) throws MalformedURLException {
+            return build(defaultReportUrl, getInterner());
+        }
+
+        @NonNull
+        private PolicyValueInterner getInterner() {
+            Builder root = this;
+            while (root.parentBuilder != null) {
+                root = root.parentBuilder;
+            }
+            if (root.interner == null) {
+                root.interner = new PolicyValueInterner();
+            }
+            return root.interner;
+        }
+
+        /**
+         * Build the policy, sharing its pins and report URLs with the other policies built using
+         * the same {@code interner}.
+         */
+        @Nullable
+        DomainPinningPolicy build(
+                @Nullable URL defaultReportUrl, @NonNull PolicyValueInterner interner)
+                throws MalformedURLException {
             if (parentBuilder != null) {
                 // Get missing values from the parent as some entries can be inherited
                 // build() should already have been called on it so it has its parent's values
@@ -232,6 +450,14 @@ public final class DomainPinningPolicy {
                     shouldDisableDefaultReportUri =
                             parentBuilder.getShouldDisableDefaultReportUri();
                 }
+
+                if (shouldValidateInBackground == null) {
+                    shouldValidateInBackground = parentBuilder.getShouldValidateInBackground();
+                }
+
+                if (validationSampleRate == null) {
+                    validationSampleRate = parentBuilder.getValidationSampleRate();
+                }
             }
 
             if (publicKeyHashes == null) {
@@ -246,7 +472,10 @@ public final class DomainPinningPolicy {
                     expirationDate,
                     reportUris,
                     shouldDisableDefaultReportUri,
-                    defaultReportUrl);
+                    defaultReportUrl,
+                    shouldValidateInBackground,
+                    validationSampleRate,
+                    interner);
         }
 
         public Builder setParent(Builder parent) {
@@ -320,5 +549,23 @@ public final class DomainPinningPolicy {
             this.shouldDisableDefaultReportUri = shouldDisableDefaultReportUri;
             return this;
         }
+
+        Boolean getShouldValidateInBackground() {
+            return shouldValidateInBackground;
+        }
+
+        public Builder setShouldValidateInBackground(Boolean shouldValidateInBackground) {
+            this.shouldValidateInBackground = shouldValidateInBackground;
+            return this;
+        }
+
+        Float getValidationSampleRate() {
+            return validationSampleRate;
+        }
+
+        public Builder setValidationSampleRate(Float validationSampleRate) {
+            this.validationSampleRate = validationSampleRate;
+            return this;
+        }
     }
 }
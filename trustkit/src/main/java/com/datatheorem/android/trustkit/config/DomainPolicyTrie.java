@@ -0,0 +1,220 @@
+package com.datatheorem.android.trustkit.config;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An index of {@link DomainPinningPolicy} by canonical hostname, stored as a trie of the labels
+ * starting with the top-level domain, so that looking up the policy for a hostname only takes as
+ * many steps as the hostname has labels regardless of how many policies are configured.
+ *
+ * <p>Labels of policy hostnames may also be patterns containing a {@code *} wildcard, such as
+ * {@code api-*.example.com}. The pattern labels under each node of the trie are compiled into a
+ * single {@link LabelPatternMatcher}, so a lookup still only does one step per label and character
+ * regardless of how many patterns are configured.
+ */
+final class DomainPolicyTrie {
+
+    @NonNull private final Node root = new Node(0);
+
+    // Lookups that cannot match a pattern only follow one path in the trie
+    private final boolean hasPatterns;
+
+    DomainPolicyTrie(@NonNull Collection<DomainPinningPolicy> domainPolicies) {
+        boolean hasPatterns = false;
+        for (DomainPinningPolicy domainPolicy : domainPolicies) {
+            String hostname = domainPolicy.getCanonicalHostname();
+            Node node = root;
+            int labelEnd = hostname.length();
+            do {
+                int labelStart = hostname.lastIndexOf('.', labelEnd - 1) + 1;
+                String label = hostname.substring(labelStart, labelEnd);
+                if (label.indexOf(LabelPatternMatcher.WILDCARD) >= 0) {
+                    node = node.getOrAddPatternChild(label);
+                    hasPatterns = true;
+                } else {
+                    node = node.getOrAddChild(label);
+                }
+                labelEnd = labelStart - 1;
+            } while (labelEnd >= 0);
+            node.policy = domainPolicy;
+        }
+        this.hasPatterns = hasPatterns;
+        if (hasPatterns) {
+            root.compilePatterns();
+        }
+    }
+
+    /**
+     * Return the policy for the exact canonical hostname if there is one, or else the policy of the
+     * closest parent domain that includes subdomains, or null.
+     *
+     * <p>When patterns are configured, an exact match still takes precedence, then the policy that
+     * matches the most labels, then the one with the most non-wildcard characters.
+     */
+    @Nullable
+    DomainPinningPolicy getPolicyForHostname(@NonNull String serverHostname) {
+        if (hasPatterns) {
+            PatternSearch search = new PatternSearch(serverHostname);
+            search.visit(root, serverHostname.length(), 0, 0);
+            return search.bestMatchPolicy;
+        }
+
+        DomainPinningPolicy bestMatchPolicy = null;
+        Node node = root;
+        int labelEnd = serverHostname.length();
+        while (true) {
+            int labelStart = serverHostname.lastIndexOf('.', labelEnd - 1) + 1;
+            node = node.getChild(serverHostname.substring(labelStart, labelEnd));
+            if (node == null) {
+                // No policy for this domain or any of its subdomains
+                return bestMatchPolicy;
+            }
+            if (labelStart == 0) {
+                // Reached the whole hostname; an exact match takes precedence
+                return (node.policy != null) ? node.policy : bestMatchPolicy;
+            }
+            if ((node.policy != null) && node.policy.shouldIncludeSubdomains()) {
+                // The most specific parent domain seen so far
+                bestMatchPolicy = node.policy;
+            }
+            labelEnd = labelStart - 1;
+        }
+    }
+
+    /** Depth-first search of all the paths of the trie that match a hostname. */
+    private static final class PatternSearch {
+        @NonNull private final String serverHostname;
+        @Nullable private DomainPinningPolicy bestMatchPolicy;
+        private boolean isBestMatchExact;
+        private int bestMatchDepth;
+        private int bestMatchSpecificity;
+
+        PatternSearch(@NonNull String serverHostname) {
+            this.serverHostname = serverHostname;
+        }
+
+        void visit(@NonNull Node node, int labelEnd, int depth, int specificity) {
+            int labelStart = serverHostname.lastIndexOf('.', labelEnd - 1) + 1;
+            Node child = node.getChild(serverHostname.substring(labelStart, labelEnd));
+            if (child != null) {
+                visitChild(child, labelStart, depth + 1, specificity + child.specificity);
+            }
+            if (node.patternMatcher != null) {
+                for (int i : node.patternMatcher.match(serverHostname, labelStart, labelEnd)) {
+                    child = node.compiledPatternChildren[i];
+                    visitChild(child, labelStart, depth + 1, specificity + child.specificity);
+                }
+            }
+        }
+
+        private void visitChild(@NonNull Node child, int labelStart, int depth, int specificity) {
+            if (labelStart == 0) {
+                // Reached the whole hostname
+                if (child.policy != null) {
+                    consider(child.policy, true, depth, specificity);
+                }
+                return;
+            }
+            if ((child.policy != null) && child.policy.shouldIncludeSubdomains()) {
+                consider(child.policy, false, depth, specificity);
+            }
+            visit(child, labelStart - 1, depth, specificity);
+        }
+
+        private void consider(
+                @NonNull DomainPinningPolicy policy, boolean isExact, int depth, int specificity) {
+            boolean isBetterMatch;
+            if (bestMatchPolicy == null) {
+                isBetterMatch = true;
+            } else if (isExact != isBestMatchExact) {
+                isBetterMatch = isExact;
+            } else if (depth != bestMatchDepth) {
+                isBetterMatch = depth > bestMatchDepth;
+            } else {
+                isBetterMatch = specificity > bestMatchSpecificity;
+            }
+            if (isBetterMatch) {
+                bestMatchPolicy = policy;
+                isBestMatchExact = isExact;
+                bestMatchDepth = depth;
+                bestMatchSpecificity = specificity;
+            }
+        }
+    }
+
+    private static final class Node {
+        @Nullable private Map<String, Node> children;
+        @Nullable private DomainPinningPolicy policy;
+
+        // The number of non-wildcard characters in this node's label
+        private final int specificity;
+
+        // Children whose label is a pattern, and the matcher compiled from their labels
+        @Nullable private Map<String, Node> patternChildren;
+        @Nullable private LabelPatternMatcher patternMatcher;
+        @Nullable private Node[] compiledPatternChildren;
+
+        Node(int specificity) {
+            this.specificity = specificity;
+        }
+
+        @Nullable
+        Node getChild(@NonNull String label) {
+            return (children == null) ? null : children.get(label);
+        }
+
+        @NonNull
+        Node getOrAddChild(@NonNull String label) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            Node child = children.get(label);
+            if (child == null) {
+                child = new Node(label.length());
+                children.put(label, child);
+            }
+            return child;
+        }
+
+        @NonNull
+        Node getOrAddPatternChild(@NonNull String pattern) {
+            if (patternChildren == null) {
+                patternChildren = new LinkedHashMap<>();
+            }
+            Node child = patternChildren.get(pattern);
+            if (child == null) {
+                int specificity = 0;
+                for (int i = 0; i < pattern.length(); i++) {
+                    if (pattern.charAt(i) != LabelPatternMatcher.WILDCARD) {
+                        specificity++;
+                    }
+                }
+                child = new Node(specificity);
+                patternChildren.put(pattern, child);
+            }
+            return child;
+        }
+
+        void compilePatterns() {
+            if (patternChildren != null) {
+                patternMatcher = new LabelPatternMatcher(new ArrayList<>(patternChildren.keySet()));
+                compiledPatternChildren = patternChildren.values().toArray(new Node[0]);
+                for (Node child : compiledPatternChildren) {
+                    child.compilePatterns();
+                }
+                patternChildren = null;
+            }
+            if (children != null) {
+                for (Node child : children.values()) {
+                    child.compilePatterns();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.datatheorem.android.trustkit.config;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Turns hostnames into the canonical form used to look up pinning policies and to verify the
+ * server's hostname: internationalized labels converted to punycode, ASCII letters in lower case,
+ * and no trailing dot.
+ */
+public final class HostnameNormalizer {
+
+    private HostnameNormalizer() {}
+
+    /**
+     * Return the canonical form of the supplied hostname. A hostname that is already canonical is
+     * returned as is, without allocating; the punycode conversion of internationalized hostnames is
+     * cached by {@link DomainValidator#unicodeToASCII(String)}.
+     */
+    @NonNull
+    public static String normalize(@NonNull String hostname) {
+        String asciiHostname = DomainValidator.unicodeToASCII(hostname);
+        int end = asciiHostname.length();
+        if ((end > 1) && (asciiHostname.charAt(end - 1) == '.')) {
+            end--;
+        }
+
+        int firstUpperCase = -1;
+        for (int i = 0; i < end; i++) {
+            char c = asciiHostname.charAt(i);
+            if ((c >= 'A') && (c <= 'Z')) {
+                firstUpperCase = i;
+                break;
+            }
+        }
+        if (firstUpperCase == -1) {
+            return (end == asciiHostname.length())
+                    ? asciiHostname
+                    : asciiHostname.substring(0, end);
+        }
+
+        char[] canonical = new char[end];
+        asciiHostname.getChars(0, end, canonical, 0);
+        for (int i = firstUpperCase; i < end; i++) {
+            char c = canonical[i];
+            if ((c >= 'A') && (c <= 'Z')) {
+                canonical[i] = (char) (c + ('a' - 'A'));
+            }
+        }
+        return new String(canonical);
+    }
+}
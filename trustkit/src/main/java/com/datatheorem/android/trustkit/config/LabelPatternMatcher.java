@@ -0,0 +1,168 @@
+package com.datatheorem.android.trustkit.config;
+
+import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matches a hostname label against a set of label patterns at once, where a {@code *} matches any
+ * sequence of characters within the label, such as {@code api-*} or {@code *-eu-*}.
+ *
+ * <p>The patterns are compiled into a single DFA when the matcher is created, so that matching a
+ * label takes one step per character regardless of how many patterns there are.
+ */
+final class LabelPatternMatcher {
+
+    static final char WILDCARD = '*';
+
+    // The characters of canonical hostname labels: a-z, 0-9 and '-'
+    private static final int ALPHABET_SIZE = 37;
+
+    // Patterns that would need more states than this are rejected
+    private static final int MAX_STATES = 4096;
+
+    private static final int[] NO_MATCH = new int[0];
+
+    // transitions[state][symbol] is the next state, or -1 if no pattern can match anymore
+    @NonNull private final int[][] transitions;
+
+    // The indexes of the patterns that match a label ending in each state
+    @NonNull private final int[][] matchedPatterns;
+
+    /**
+     * @param patterns the label patterns, in lower case
+     * @throws ConfigurationException if the patterns are too complex to be compiled
+     */
+    LabelPatternMatcher(@NonNull List<String> patterns) {
+        // The NFA state for position i of pattern p is offsets[p] + i; the state after the last
+        // character of the pattern is the one that matches
+        int[] offsets = new int[patterns.size() + 1];
+        for (int p = 0; p < patterns.size(); p++) {
+            offsets[p + 1] = offsets[p] + patterns.get(p).length() + 1;
+        }
+
+        // Subset construction, starting from the start position of every pattern
+        List<BitSet> dfaStates = new ArrayList<>();
+        Map<BitSet, Integer> dfaStateIndexes = new HashMap<>();
+        List<int[]> dfaTransitions = new ArrayList<>();
+        BitSet startState = new BitSet();
+        for (int p = 0; p < patterns.size(); p++) {
+            addPosition(startState, patterns.get(p), offsets[p], 0);
+        }
+        dfaStates.add(startState);
+        dfaStateIndexes.put(startState, 0);
+
+        for (int state = 0; state < dfaStates.size(); state++) {
+            BitSet nfaStates = dfaStates.get(state);
+            int[] stateTransitions = new int[ALPHABET_SIZE];
+            for (int symbol = 0; symbol < ALPHABET_SIZE; symbol++) {
+                char c = toChar(symbol);
+                BitSet nextState = new BitSet();
+                for (int p = 0; p < patterns.size(); p++) {
+                    String pattern = patterns.get(p);
+                    for (int i = 0; i < pattern.length(); i++) {
+                        if (!nfaStates.get(offsets[p] + i)) {
+                            continue;
+                        }
+                        char patternChar = pattern.charAt(i);
+                        if (patternChar == WILDCARD) {
+                            // The wildcard consumes the character and can keep going
+                            addPosition(nextState, pattern, offsets[p], i);
+                        } else if (patternChar == c) {
+                            addPosition(nextState, pattern, offsets[p], i + 1);
+                        }
+                    }
+                }
+
+                if (nextState.isEmpty()) {
+                    stateTransitions[symbol] = -1;
+                    continue;
+                }
+                Integer nextStateIndex = dfaStateIndexes.get(nextState);
+                if (nextStateIndex == null) {
+                    if (dfaStates.size() >= MAX_STATES) {
+                        throw new ConfigurationException(
+                                "Too many or too complex domain patterns: " + patterns);
+                    }
+                    nextStateIndex = dfaStates.size();
+                    dfaStates.add(nextState);
+                    dfaStateIndexes.put(nextState, nextStateIndex);
+                }
+                stateTransitions[symbol] = nextStateIndex;
+            }
+            dfaTransitions.add(stateTransitions);
+        }
+
+        transitions = dfaTransitions.toArray(new int[0][]);
+        matchedPatterns = new int[dfaStates.size()][];
+        for (int state = 0; state < dfaStates.size(); state++) {
+            List<Integer> matched = new ArrayList<>();
+            for (int p = 0; p < patterns.size(); p++) {
+                if (dfaStates.get(state).get(offsets[p] + patterns.get(p).length())) {
+                    matched.add(p);
+                }
+            }
+            if (matched.isEmpty()) {
+                matchedPatterns[state] = NO_MATCH;
+            } else {
+                matchedPatterns[state] = new int[matched.size()];
+                for (int i = 0; i < matched.size(); i++) {
+                    matchedPatterns[state][i] = matched.get(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the indexes of the patterns that match the characters of {@code hostname} between
+     * {@code start} and {@code end}. Does not allocate; the returned array must not be modified.
+     */
+    @NonNull
+    int[] match(@NonNull String hostname, int start, int end) {
+        int state = 0;
+        for (int i = start; i < end; i++) {
+            int symbol = toSymbol(hostname.charAt(i));
+            if (symbol < 0) {
+                return NO_MATCH;
+            }
+            state = transitions[state][symbol];
+            if (state < 0) {
+                return NO_MATCH;
+            }
+        }
+        return matchedPatterns[state];
+    }
+
+    // Add position i of a pattern, and the positions after any wildcards, as they can match nothing
+    private static void addPosition(
+            @NonNull BitSet nfaStates, @NonNull String pattern, int offset, int i) {
+        nfaStates.set(offset + i);
+        while ((i < pattern.length()) && (pattern.charAt(i) == WILDCARD)) {
+            i++;
+            nfaStates.set(offset + i);
+        }
+    }
+
+    private static int toSymbol(char c) {
+        if ((c >= 'a') && (c <= 'z')) {
+            return c - 'a';
+        } else if ((c >= '0') && (c <= '9')) {
+            return 26 + (c - '0');
+        } else if (c == '-') {
+            return 36;
+        }
+        return -1;
+    }
+
+    private static char toChar(int symbol) {
+        if (symbol < 26) {
+            return (char) ('a' + symbol);
+        } else if (symbol < 36) {
+            return (char) ('0' + symbol - 26);
+        }
+        return '-';
+    }
+}
@@ -0,0 +1,92 @@
+package com.datatheorem.android.trustkit.config;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shares the pin sets and report URL sets of the policies created while parsing a configuration.
+ *
+ * <p>Nested {@code domain-config} tags inherit their parent's pins and report URLs, and large
+ * configurations tend to use the same few pin sets for many domains; policies with the same values
+ * get the same immutable instances, so that each distinct set is only parsed and retained once.
+ *
+ * <p>The parser uses one instance for the duration of the parsing; policies created without a
+ * parser share one instance per tree of {@link DomainPinningPolicy.Builder}. An instance is not
+ * referenced by the policies, so it is discarded along with the parser or the builders. It is only
+ * meant to be used by a single thread.
+ */
+final class PolicyValueInterner {
+
+    @NonNull private final Map<String, PublicKeyPin> pins = new HashMap<>();
+    @NonNull private final Map<Set<String>, PublicKeyPinSet> pinSets = new HashMap<>();
+
+    // Keyed by the URLs' string form: URL.equals() and URL.hashCode() resolve the host
+    @NonNull private final Map<String, URL> urls = new HashMap<>();
+    @NonNull private final Map<Set<String>, Set<URL>> urlSets = new HashMap<>();
+
+    /** Return the parsed set of pins for the supplied pin strings. */
+    @NonNull
+    PublicKeyPinSet internPins(@NonNull Set<String> publicKeyHashes) {
+        PublicKeyPinSet pinSet = pinSets.get(publicKeyHashes);
+        if (pinSet == null) {
+            List<PublicKeyPin> parsedPins = new ArrayList<>(publicKeyHashes.size());
+            for (String pinStr : publicKeyHashes) {
+                PublicKeyPin pin = pins.get(pinStr);
+                if (pin == null) {
+                    pin = new PublicKeyPin(pinStr);
+                    pins.put(pinStr, pin);
+                }
+                parsedPins.add(pin);
+            }
+            pinSet = new PublicKeyPinSet(parsedPins);
+            // Copy the key as the builder's set could be modified later
+            pinSets.put(new HashSet<>(publicKeyHashes), pinSet);
+        }
+        return pinSet;
+    }
+
+    /**
+     * Return an unmodifiable set of the supplied report URLs, plus {@code defaultReportUrl} if it
+     * is not null.
+     */
+    @NonNull
+    Set<URL> internReportUris(@Nullable Set<String> reportUris, @Nullable URL defaultReportUrl)
+            throws MalformedURLException {
+        Set<String> key = new HashSet<>();
+        if (reportUris != null) {
+            key.addAll(reportUris);
+        }
+        if (defaultReportUrl != null) {
+            String defaultReportUrlStr = defaultReportUrl.toExternalForm();
+            if (!urls.containsKey(defaultReportUrlStr)) {
+                urls.put(defaultReportUrlStr, defaultReportUrl);
+            }
+            key.add(defaultReportUrlStr);
+        }
+
+        Set<URL> urlSet = urlSets.get(key);
+        if (urlSet == null) {
+            Set<URL> parsedUrls = new HashSet<>();
+            for (String urlStr : key) {
+                URL url = urls.get(urlStr);
+                if (url == null) {
+                    url = new URL(urlStr);
+                    urls.put(urlStr, url);
+                }
+                parsedUrls.add(url);
+            }
+            urlSet = Collections.unmodifiableSet(parsedUrls);
+            urlSets.put(key, urlSet);
+        }
+        return urlSet;
+    }
+}
@@ -2,55 +2,175 @@ package com.datatheorem.android.trustkit.config;
 
 import android.util.Base64;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.datatheorem.android.trustkit.utils.Sha256Digester;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A pin is the base64-encoded SHA-256 hash of the certificate's Subject Public Key Info, as
  * described in the <a href="https://tools.ietf.org/html/rfc7469s">HPKP RFC</a> .
+ *
+ * <p>The hash is stored as four packed longs so that comparing two pins, which happens on every SSL
+ * handshake, does not involve any String processing. The base64 representation is only generated
+ * when needed, for example for logs and pin failure reports.
  */
 public final class PublicKeyPin {
 
-    @NonNull private final String pin;
+    private static final int SHA256_LENGTH = 32;
+
+    // The SHA-256 hash of the SPKI, in big-endian order
+    private final long hash0;
+    private final long hash1;
+    private final long hash2;
+    private final long hash3;
+    private final int hashCode;
+
+    // The base64 representation of the pin, generated lazily
+    @Nullable private String pin;
 
     public PublicKeyPin(@NonNull Certificate certificate) {
-        // Generate the certificate's spki pin
-        MessageDigest digest;
+        this(computeSpkiHash(certificate), null);
+    }
+
+    public PublicKeyPin(@NonNull String spkiPin) {
+        // Validate the format of the pin
+        this(decodePin(spkiPin), spkiPin.trim());
+    }
+
+    private PublicKeyPin(@NonNull byte[] spkiSha256Hash, @Nullable String pin) {
+        hash0 = readLong(spkiSha256Hash, 0);
+        hash1 = readLong(spkiSha256Hash, 8);
+        hash2 = readLong(spkiSha256Hash, 16);
+        hash3 = readLong(spkiSha256Hash, 24);
+        // The hash is already uniformly distributed so its first bytes are a good hash code
+        hashCode = (int) (hash0 >>> 32);
+        this.pin = pin;
+    }
+
+    /**
+     * Generate the pins of all the certificates in the supplied chain, using a single digester.
+     *
+     * @return the pins, in the same order as the certificates in the chain
+     */
+    @NonNull
+    public static List<PublicKeyPin> fromCertificateChain(
+            @NonNull List<? extends Certificate> certificateChain) {
+        MessageDigest digest = Sha256Digester.getInstance();
+        List<PublicKeyPin> pins = new ArrayList<>(certificateChain.size());
+        for (Certificate certificate : certificateChain) {
+            // digest() resets the digester so it is ready for the next certificate
+            pins.add(new PublicKeyPin(computeSpkiHash(digest, certificate), null));
+        }
+        return pins;
+    }
+
+    @NonNull
+    private static byte[] computeSpkiHash(@NonNull Certificate certificate) {
+        return computeSpkiHash(Sha256Digester.getInstance(), certificate);
+    }
+
+    @NonNull
+    private static byte[] computeSpkiHash(
+            @NonNull MessageDigest digest, @NonNull Certificate certificate) {
+        // Hash the SPKI straight out of the certificate's encoding when possible
+        byte[] encodedCertificate;
         try {
-            digest = MessageDigest.getInstance("SHA-256");
-        } catch (NoSuchAlgorithmException e) {
-            throw new IllegalStateException("Should never happen");
+            encodedCertificate = certificate.getEncoded();
+        } catch (CertificateEncodingException e) {
+            encodedCertificate = null;
+        }
+        long spkiLocation = SpkiExtractor.locateSubjectPublicKeyInfo(encodedCertificate);
+        if (spkiLocation != SpkiExtractor.NOT_FOUND) {
+            digest.update(
+                    encodedCertificate,
+                    SpkiExtractor.getOffset(spkiLocation),
+                    SpkiExtractor.getLength(spkiLocation));
+            return digest.digest();
         }
-        digest.reset();
 
+        // Could not parse the certificate; get the SPKI from its public key instead
         byte[] spki = certificate.getPublicKey().getEncoded();
-        byte[] spkiHash = digest.digest(spki);
-        pin = Base64.encodeToString(spkiHash, Base64.DEFAULT).trim();
+        return digest.digest(spki);
     }
 
-    public PublicKeyPin(@NonNull String spkiPin) {
-        // Validate the format of the pin
+    @NonNull
+    private static byte[] decodePin(@NonNull String spkiPin) {
         byte[] spkiSha256Hash = Base64.decode(spkiPin, Base64.DEFAULT);
-        if (spkiSha256Hash.length != 32) {
+        if (spkiSha256Hash.length != SHA256_LENGTH) {
             throw new IllegalArgumentException("Invalid pin: length is not 32 bytes");
         }
-        pin = spkiPin.trim();
+        return spkiSha256Hash;
+    }
+
+    private static long readLong(@NonNull byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static void writeLong(long value, @NonNull byte[] bytes, int offset) {
+        for (int i = offset + 7; i >= offset; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    /** Return one of the four 64-bit words of the SPKI hash, in big-endian order. */
+    long getHashWord(int index) {
+        switch (index) {
+            case 0:
+                return hash0;
+            case 1:
+                return hash1;
+            case 2:
+                return hash2;
+            case 3:
+                return hash3;
+            default:
+                throw new IndexOutOfBoundsException("Invalid hash word index: " + index);
+        }
     }
 
     @Override
     public boolean equals(Object arg0) {
-        return (arg0 instanceof PublicKeyPin) && arg0.toString().equals(this.toString());
+        if (this == arg0) {
+            return true;
+        }
+        if (!(arg0 instanceof PublicKeyPin)) {
+            return false;
+        }
+        PublicKeyPin other = (PublicKeyPin) arg0;
+        return (hash0 == other.hash0)
+                && (hash1 == other.hash1)
+                && (hash2 == other.hash2)
+                && (hash3 == other.hash3);
     }
 
     @Override
     public int hashCode() {
-        return pin.hashCode();
+        return hashCode;
     }
 
     @NonNull
     @Override
     public String toString() {
-        return pin;
+        // Benign race: concurrent callers would generate the same String
+        String result = pin;
+        if (result == null) {
+            byte[] spkiSha256Hash = new byte[SHA256_LENGTH];
+            writeLong(hash0, spkiSha256Hash, 0);
+            writeLong(hash1, spkiSha256Hash, 8);
+            writeLong(hash2, spkiSha256Hash, 16);
+            writeLong(hash3, spkiSha256Hash, 24);
+            result = Base64.encodeToString(spkiSha256Hash, Base64.NO_WRAP);
+            pin = result;
+        }
+        return result;
     }
 }
@@ -0,0 +1,135 @@
+package com.datatheorem.android.trustkit.config;
+
+import androidx.annotation.NonNull;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable set of pins, backed by a primitive open-addressing hash table of the pins' SHA-256
+ * words.
+ *
+ * <p>Looking up a pin is done on every SSL handshake to a pinned domain; it does not allocate and
+ * only compares primitives, while the memory footprint of the set is a fraction of a {@code
+ * HashSet<PublicKeyPin>}.
+ */
+final class PublicKeyPinSet extends AbstractSet<PublicKeyPin> {
+
+    // The pins, in the order they were supplied; used for iteration
+    @NonNull private final PublicKeyPin[] pins;
+
+    // The four SHA-256 words of each pin, laid out contiguously: pin i is at [4 * i, 4 * i + 3]
+    @NonNull private final long[] pinWords;
+
+    // Open-addressing table using linear probing: each slot holds the index of a pin + 1, or 0 if
+    // the slot is empty
+    @NonNull private final int[] slots;
+    private final int slotMask;
+
+    PublicKeyPinSet(@NonNull Collection<PublicKeyPin> publicKeyPins) {
+        // Remove duplicates first
+        PublicKeyPin[] uniquePins = new PublicKeyPin[publicKeyPins.size()];
+        int pinCount = 0;
+        for (PublicKeyPin pin : publicKeyPins) {
+            boolean isDuplicate = false;
+            for (int i = 0; i < pinCount; i++) {
+                if (uniquePins[i].equals(pin)) {
+                    isDuplicate = true;
+                    break;
+                }
+            }
+            if (!isDuplicate) {
+                uniquePins[pinCount++] = pin;
+            }
+        }
+        pins = new PublicKeyPin[pinCount];
+        System.arraycopy(uniquePins, 0, pins, 0, pinCount);
+
+        // Keep the load factor at or below 0.5 so that probe sequences stay short
+        int slotCount = 1;
+        while (slotCount < pinCount * 2) {
+            slotCount <<= 1;
+        }
+        slots = new int[slotCount];
+        slotMask = slotCount - 1;
+        pinWords = new long[pinCount * 4];
+
+        for (int i = 0; i < pinCount; i++) {
+            PublicKeyPin pin = pins[i];
+            pinWords[4 * i] = pin.getHashWord(0);
+            pinWords[4 * i + 1] = pin.getHashWord(1);
+            pinWords[4 * i + 2] = pin.getHashWord(2);
+            pinWords[4 * i + 3] = pin.getHashWord(3);
+
+            int slot = pin.hashCode() & slotMask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & slotMask;
+            }
+            slots[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Return the position of the supplied pin in this set, or -1 if the pin is not part of the set.
+     */
+    int indexOf(@NonNull PublicKeyPin pin) {
+        if (pins.length == 0) {
+            return -1;
+        }
+        long word0 = pin.getHashWord(0);
+        long word1 = pin.getHashWord(1);
+        long word2 = pin.getHashWord(2);
+        long word3 = pin.getHashWord(3);
+
+        int slot = pin.hashCode() & slotMask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int offset = 4 * (entry - 1);
+            if ((pinWords[offset] == word0)
+                    && (pinWords[offset + 1] == word1)
+                    && (pinWords[offset + 2] == word2)
+                    && (pinWords[offset + 3] == word3)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return (o instanceof PublicKeyPin) && (indexOf((PublicKeyPin) o) >= 0);
+    }
+
+    @Override
+    public int size() {
+        return pins.length;
+    }
+
+    @NonNull
+    @Override
+    public Iterator<PublicKeyPin> iterator() {
+        return new Iterator<PublicKeyPin>() {
+            private int position = 0;
+
+            @Override
+            public boolean hasNext() {
+                return position < pins.length;
+            }
+
+            @Override
+            public PublicKeyPin next() {
+                if (position >= pins.length) {
+                    throw new NoSuchElementException();
+                }
+                return pins[position++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,136 @@
+package com.datatheorem.android.trustkit.config;
+
+import androidx.annotation.Nullable;
+
+/**
+ * A minimal DER walker that locates the SubjectPublicKeyInfo within an encoded X.509 certificate,
+ * so that it can be hashed in place.
+ *
+ * <p>Going through {@code certificate.getPublicKey().getEncoded()} instead requires instantiating
+ * the key through a key factory and then re-encoding it. Only the few elements preceding the SPKI
+ * are walked; anything unexpected makes the lookup fail so that callers can fall back to the
+ * regular path.
+ *
+ * <pre>
+ * Certificate ::= SEQUENCE {
+ *     tbsCertificate       TBSCertificate, ... }
+ *
+ * TBSCertificate ::= SEQUENCE {
+ *     version         [0]  EXPLICIT Version DEFAULT v1,
+ *     serialNumber         CertificateSerialNumber,
+ *     signature            AlgorithmIdentifier,
+ *     issuer               Name,
+ *     validity             Validity,
+ *     subject              Name,
+ *     subjectPublicKeyInfo SubjectPublicKeyInfo, ... }
+ * </pre>
+ */
+final class SpkiExtractor {
+
+    static final long NOT_FOUND = -1;
+
+    private static final int TAG_INTEGER = 0x02;
+    private static final int TAG_SEQUENCE = 0x30;
+    private static final int TAG_EXPLICIT_VERSION = 0xA0;
+
+    private SpkiExtractor() {}
+
+    /**
+     * Locate the SubjectPublicKeyInfo, including its tag and length, within the supplied DER
+     * encoded certificate.
+     *
+     * @return the offset and length of the SPKI packed into a long, to be read with {@link
+     *     #getOffset(long)} and {@link #getLength(long)}, or {@link #NOT_FOUND} if the certificate
+     *     could not be parsed.
+     */
+    static long locateSubjectPublicKeyInfo(@Nullable byte[] der) {
+        if (der == null) {
+            return NOT_FOUND;
+        }
+
+        // Enter the Certificate then the TBSCertificate sequences
+        int certificateEnd = readHeader(der, 0, der.length, TAG_SEQUENCE);
+        if (certificateEnd < 0) {
+            return NOT_FOUND;
+        }
+        int position = contentOffset(der, 0);
+        int tbsEnd = readHeader(der, position, certificateEnd, TAG_SEQUENCE);
+        if (tbsEnd < 0) {
+            return NOT_FOUND;
+        }
+        position = contentOffset(der, position);
+
+        // The version is optional
+        if ((position < tbsEnd) && ((der[position] & 0xFF) == TAG_EXPLICIT_VERSION)) {
+            position = readHeader(der, position, tbsEnd, TAG_EXPLICIT_VERSION);
+            if (position < 0) {
+                return NOT_FOUND;
+            }
+        }
+
+        // Skip the serial number, signature algorithm, issuer, validity and subject
+        position = readHeader(der, position, tbsEnd, TAG_INTEGER);
+        for (int i = 0; (i < 4) && (position >= 0); i++) {
+            position = readHeader(der, position, tbsEnd, TAG_SEQUENCE);
+        }
+        if (position < 0) {
+            return NOT_FOUND;
+        }
+
+        int spkiEnd = readHeader(der, position, tbsEnd, TAG_SEQUENCE);
+        if (spkiEnd < 0) {
+            return NOT_FOUND;
+        }
+        return ((long) position << 32) | (spkiEnd - position);
+    }
+
+    static int getOffset(long location) {
+        return (int) (location >>> 32);
+    }
+
+    static int getLength(long location) {
+        return (int) location;
+    }
+
+    /**
+     * Check that a DER element with the expected tag starts at the supplied offset and fits before
+     * the limit.
+     *
+     * @return the offset right after the element, or -1 if the element is invalid.
+     */
+    private static int readHeader(byte[] der, int offset, int limit, int expectedTag) {
+        // Only the single-byte tags used by the elements we walk are supported
+        if ((offset < 0) || (offset + 2 > limit) || ((der[offset] & 0xFF) != expectedTag)) {
+            return -1;
+        }
+        int lengthByte = der[offset + 1] & 0xFF;
+        int position = offset + 2;
+        long contentLength;
+        if (lengthByte < 0x80) {
+            // Short form
+            contentLength = lengthByte;
+        } else {
+            // Long form; the indefinite form is not allowed in DER
+            int lengthOfLength = lengthByte & 0x7F;
+            if ((lengthOfLength == 0)
+                    || (lengthOfLength > 4)
+                    || (position + lengthOfLength > limit)) {
+                return -1;
+            }
+            contentLength = 0;
+            for (int i = 0; i < lengthOfLength; i++) {
+                contentLength = (contentLength << 8) | (der[position++] & 0xFF);
+            }
+        }
+        if (contentLength > limit - position) {
+            return -1;
+        }
+        return position + (int) contentLength;
+    }
+
+    /** Return the offset of the content of an element whose header was already validated. */
+    private static int contentOffset(byte[] der, int offset) {
+        int lengthByte = der[offset + 1] & 0xFF;
+        return (lengthByte < 0x80) ? offset + 2 : offset + 2 + (lengthByte & 0x7F);
+    }
+}
@@ -0,0 +1,160 @@
+package com.datatheorem.android.trustkit.config;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A read-only set of lower-case ASCII top-level domains, packed into a single byte array with a
+ * hash index, used by {@link DomainValidator} for its built-in TLD lists.
+ *
+ * <p>Compared to a sorted {@code String[]}, this does not retain one {@code String} per entry, and
+ * a lookup hashes the characters of the candidate TLD in place instead of lower-casing a copy of it
+ * and running a binary search.
+ */
+final class TldTable {
+
+    private static final char SEPARATOR = ' ';
+
+    // The entries' characters, one byte each
+    @NonNull private final byte[] characters;
+
+    // Entry i starts at offsets[i] and ends at offsets[i + 1]
+    @NonNull private final int[] offsets;
+
+    // Open-addressing hash index: each slot holds an entry index plus one, or 0 if empty
+    @NonNull private final short[] slots;
+
+    /**
+     * @param packedEntries the TLDs, in lower-case ASCII, without duplicates and separated by
+     *     single spaces; they are returned in the same order by {@link #toArray()}. The built-in
+     *     lists are supplied this way so that each of them is a single string constant, instead of
+     *     one interned {@code String} per TLD.
+     */
+    TldTable(@NonNull String packedEntries) {
+        int entryCount = 0;
+        if (packedEntries.length() > 0) {
+            entryCount = 1;
+            for (int i = 0; i < packedEntries.length(); i++) {
+                if (packedEntries.charAt(i) == SEPARATOR) {
+                    entryCount++;
+                }
+            }
+        }
+        if (entryCount >= Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many entries");
+        }
+        characters = new byte[packedEntries.length() - Math.max(entryCount - 1, 0)];
+        offsets = new int[entryCount + 1];
+        int slotCount = Integer.highestOneBit(Math.max(entryCount, 1) * 2) * 2;
+        slots = new short[slotCount];
+
+        int offset = 0;
+        int entryStart = 0;
+        for (int i = 0; i < entryCount; i++) {
+            int entryEnd = packedEntries.indexOf(SEPARATOR, entryStart);
+            if (entryEnd < 0) {
+                entryEnd = packedEntries.length();
+            }
+            if (entryEnd == entryStart) {
+                throw new IllegalArgumentException("Empty TLD in: " + packedEntries);
+            }
+            offsets[i] = offset;
+            for (int j = entryStart; j < entryEnd; j++) {
+                char c = packedEntries.charAt(j);
+                if ((c > 0x7F) || ((c >= 'A') && (c <= 'Z'))) {
+                    throw new IllegalArgumentException(
+                            "Not a lower-case ASCII TLD: "
+                                    + packedEntries.substring(entryStart, entryEnd));
+                }
+                characters[offset++] = (byte) c;
+            }
+
+            int slot = hash(packedEntries, entryStart, entryEnd) & (slotCount - 1);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (slotCount - 1);
+            }
+            slots[slot] = (short) (i + 1);
+            entryStart = entryEnd + 1;
+        }
+        offsets[entryCount] = offset;
+    }
+
+    /**
+     * @param entries the TLDs, in lower-case ASCII and without duplicates; they are returned in the
+     *     same order by {@link #toArray()}
+     */
+    TldTable(@NonNull String[] entries) {
+        this(pack(entries));
+    }
+
+    @NonNull
+    private static String pack(@NonNull String[] entries) {
+        StringBuilder packedEntries = new StringBuilder();
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i].isEmpty() || (entries[i].indexOf(SEPARATOR) >= 0)) {
+                throw new IllegalArgumentException("Not a TLD: " + entries[i]);
+            }
+            if (i > 0) {
+                packedEntries.append(SEPARATOR);
+            }
+            packedEntries.append(entries[i]);
+        }
+        return packedEntries.toString();
+    }
+
+    /**
+     * Check if the characters of {@code tld} between {@code start} and {@code end} are one of the
+     * entries, ignoring the case of ASCII letters. Does not allocate.
+     */
+    boolean contains(@NonNull CharSequence tld, int start, int end) {
+        int slotMask = slots.length - 1;
+        int slot = hash(tld, start, end) & slotMask;
+        while (slots[slot] != 0) {
+            if (entryEquals(slots[slot] - 1, tld, start, end)) {
+                return true;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+        return false;
+    }
+
+    /** Return a copy of the entries, in the order they were supplied. */
+    @NonNull
+    String[] toArray() {
+        String[] entries = new String[offsets.length - 1];
+        char[] buffer = new char[characters.length];
+        for (int i = 0; i < characters.length; i++) {
+            buffer[i] = (char) characters[i];
+        }
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new String(buffer, offsets[i], offsets[i + 1] - offsets[i]);
+        }
+        return entries;
+    }
+
+    private boolean entryEquals(int index, @NonNull CharSequence tld, int start, int end) {
+        int entryStart = offsets[index];
+        if (offsets[index + 1] - entryStart != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (characters[entryStart + i - start] != toLowerCaseAscii(tld.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a over the lower-cased characters
+    private static int hash(@NonNull CharSequence tld, int start, int end) {
+        int hash = 0x811c9dc5;
+        for (int i = start; i < end; i++) {
+            hash ^= toLowerCaseAscii(tld.charAt(i));
+            hash *= 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static char toLowerCaseAscii(char c) {
+        return ((c >= 'A') && (c <= 'Z')) ? (char) (c + ('a' - 'A')) : c;
+    }
+}
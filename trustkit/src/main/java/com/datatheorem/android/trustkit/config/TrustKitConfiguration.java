@@ -7,14 +7,14 @@ import com.datatheorem.android.trustkit.TrustKitOptions;
 import java.io.IOException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
-import java.util.HashSet;
 import java.util.Set;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 public class TrustKitConfiguration {
 
-    @NonNull private final Set<DomainPinningPolicy> domainPolicies;
+    // Everything SSL validation needs to read from this configuration
+    @NonNull private final CompiledPolicyIndex policyIndex;
 
     // For simplicity, this works slightly differently than Android N as we use shouldOverridePins
     // as a global setting instead of a per-<certificates> setting like Android N does
@@ -45,16 +45,7 @@ public class TrustKitConfiguration {
             @NonNull Set<DomainPinningPolicy> domainConfigSet,
             boolean shouldOverridePins,
             @Nullable Set<Certificate> debugCaCerts) {
-        Set<String> hostnameSet = new HashSet<>();
-        for (DomainPinningPolicy domainConfig : domainConfigSet) {
-            if (hostnameSet.contains(domainConfig.getHostname())) {
-                throw new ConfigurationException(
-                        "Policy contains the same domain defined twice: "
-                                + domainConfig.getHostname());
-            }
-            hostnameSet.add(domainConfig.getHostname());
-        }
-        this.domainPolicies = domainConfigSet;
+        this.policyIndex = new CompiledPolicyIndex(domainConfigSet);
         this.shouldOverridePins = shouldOverridePins;
         this.debugCaCertificates = debugCaCerts;
     }
@@ -71,10 +62,16 @@ public class TrustKitConfiguration {
     /**
      * Get the Set of {@link DomainPinningPolicy}.
      *
-     * @return Set<DomainPinningPolicy> the set of domain's policy
+     * @return Set<DomainPinningPolicy> the set of domain's policy, which cannot be modified
      */
     public Set<DomainPinningPolicy> getAllPolicies() {
-        return this.domainPolicies;
+        return policyIndex.getAllPolicies();
+    }
+
+    /** Get the compiled snapshot of this configuration's policies. */
+    @NonNull
+    public CompiledPolicyIndex getPolicyIndex() {
+        return policyIndex;
     }
 
     /**
@@ -88,41 +85,6 @@ public class TrustKitConfiguration {
      */
     @Nullable
     public DomainPinningPolicy getPolicyForHostname(@NonNull String serverHostname) {
-        // Check if the hostname seems valid
-        DomainValidator domainValidator = DomainValidator.getInstance(true);
-
-        if (!domainValidator.isValid(serverHostname)) {
-            throw new IllegalArgumentException("Invalid domain supplied: " + serverHostname);
-        }
-
-        DomainPinningPolicy bestMatchPolicy = null;
-        for (DomainPinningPolicy domainPolicy : this.domainPolicies) {
-            if (domainPolicy.getHostname().equals(serverHostname)) {
-                // Found an exact match for this domain
-                bestMatchPolicy = domainPolicy;
-                break;
-            }
-
-            // Look for the best match for pinning policies that include subdomains
-            if (domainPolicy.shouldIncludeSubdomains()
-                    && isSubdomain(domainPolicy.getHostname(), serverHostname)) {
-                if (bestMatchPolicy == null) {
-                    bestMatchPolicy = domainPolicy;
-                } else if (domainPolicy.getHostname().length()
-                        > bestMatchPolicy.getHostname().length()) {
-                    bestMatchPolicy = domainPolicy;
-                }
-            }
-        }
-        return bestMatchPolicy;
-    }
-
-    /**
-     * Return true for all subdomains, including subdomains of subdomains, similar to how Android N
-     * handles includeSubdomains
-     */
-    private static boolean isSubdomain(@NonNull String domain, @NonNull String subdomain) {
-        return subdomain.endsWith(domain)
-                && subdomain.charAt(subdomain.length() - domain.length() - 1) == '.';
+        return policyIndex.getPolicyForHostname(serverHostname);
     }
 }
@@ -62,8 +62,9 @@ class TrustKitConfigurationParser {
         // Finally, store the result of the parsed policy in our configuration object
         TrustKitConfiguration config;
         HashSet<DomainPinningPolicy> domainConfigSet = new HashSet<>();
+        PolicyValueInterner interner = new PolicyValueInterner();
         for (DomainPinningPolicy.Builder builder : builderList) {
-            DomainPinningPolicy policy = builder.build(defaultReportUrl);
+            DomainPinningPolicy policy = builder.build(defaultReportUrl, interner);
             if (policy != null) {
                 domainConfigSet.add(policy);
             }
@@ -115,7 +116,9 @@ class TrustKitConfigurationParser {
                     TrustkitConfigTag trustkitTag = readTrustkitConfig(parser);
                     builder.setReportUris(trustkitTag.reportUris)
                             .setShouldEnforcePinning(trustkitTag.enforcePinning)
-                            .setShouldDisableDefaultReportUri(trustkitTag.disableDefaultReportUri);
+                            .setShouldDisableDefaultReportUri(trustkitTag.disableDefaultReportUri)
+                            .setShouldValidateInBackground(trustkitTag.backgroundValidation)
+                            .setValidationSampleRate(trustkitTag.validationSampleRate);
                 }
             }
             eventType = parser.next();
@@ -175,6 +178,8 @@ class TrustKitConfigurationParser {
     private static class TrustkitConfigTag {
         Boolean enforcePinning = false;
         Boolean disableDefaultReportUri;
+        Boolean backgroundValidation;
+        Float validationSampleRate;
         Set<String> reportUris;
     }
 
@@ -198,6 +203,23 @@ class TrustKitConfigurationParser {
             result.disableDefaultReportUri = Boolean.parseBoolean(disableDefaultReportUri);
         }
 
+        // Look for the backgroundValidation attribute
+        String backgroundValidation = parser.getAttributeValue(null, "backgroundValidation");
+        if (backgroundValidation != null) {
+            result.backgroundValidation = Boolean.parseBoolean(backgroundValidation);
+        }
+
+        // Look for the validationSampleRate attribute
+        String validationSampleRate = parser.getAttributeValue(null, "validationSampleRate");
+        if (validationSampleRate != null) {
+            try {
+                result.validationSampleRate = Float.parseFloat(validationSampleRate);
+            } catch (NumberFormatException e) {
+                throw new ConfigurationException(
+                        "Invalid validationSampleRate in trustkit-config: " + validationSampleRate);
+            }
+        }
+
         // Parse until the corresponding close trustkit-config tag
         int eventType = parser.next();
         while (!((eventType == XmlPullParser.END_TAG)
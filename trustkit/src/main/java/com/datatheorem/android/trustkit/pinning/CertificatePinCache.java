@@ -0,0 +1,55 @@
+package com.datatheorem.android.trustkit.pinning;
+
+import android.util.LruCache;
+import androidx.annotation.NonNull;
+import com.datatheorem.android.trustkit.config.PublicKeyPin;
+import java.security.cert.Certificate;
+
+/**
+ * A bounded cache of the SPKI pins computed for the certificates received during pinning
+ * validation.
+ *
+ * <p>Apps usually connect to the same few servers over and over again and receive the same
+ * intermediate and root certificates every time; caching their pins avoids hashing each of these
+ * certificates on every single SSL handshake. Entries are keyed by certificate, and two
+ * certificates are equal when they have the same DER encoding.
+ */
+public final class CertificatePinCache {
+
+    // One entry per certificate: a chain is usually a leaf, an intermediate and a root, and servers
+    // tend to share their intermediate and root certificates, so this covers the leaves of a few
+    // dozen servers. An entry only holds the certificate and a 32-byte hash
+    private static final int MAX_ENTRIES = 64;
+
+    private static final LruCache<Certificate, PublicKeyPin> pinCache =
+            new LruCache<Certificate, PublicKeyPin>(MAX_ENTRIES) {
+                @Override
+                protected PublicKeyPin create(Certificate certificate) {
+                    // Cache miss - compute the certificate's pin
+                    return new PublicKeyPin(certificate);
+                }
+            };
+
+    private CertificatePinCache() {}
+
+    /** Retrieve the pin for the supplied certificate, computing it if it was not cached yet. */
+    @NonNull
+    static PublicKeyPin getPin(@NonNull Certificate certificate) {
+        return pinCache.get(certificate);
+    }
+
+    /** Return the number of times a certificate's pin was found in the cache. */
+    public static int getHitCount() {
+        return pinCache.hitCount();
+    }
+
+    /** Return the number of times a certificate's pin had to be computed. */
+    public static int getMissCount() {
+        return pinCache.missCount();
+    }
+
+    // For use by unit test code only
+    static void clear() {
+        pinCache.evictAll();
+    }
+}
@@ -0,0 +1,117 @@
+package com.datatheorem.android.trustkit.pinning;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import com.datatheorem.android.trustkit.TrustKit;
+import com.datatheorem.android.trustkit.config.DomainPinningPolicy;
+import java.net.Socket;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.X509ExtendedTrustManager;
+import javax.net.ssl.X509TrustManager;
+
+/**
+ * {@link X509TrustManager} that can be used for connections to any server: it gets the server's
+ * hostname from the handshake being validated, and then delegates to the trust manager returned by
+ * {@link TrustManagerBuilder#getTrustManager(String)} for that hostname. A hostname that is not a
+ * valid domain name still gets the policy of the pinned domain it belongs to, if any, so that such
+ * connections cannot bypass pinning.
+ *
+ * <p>This allows using a single {@code SSLContext}, and therefore a single TLS session cache, for
+ * all of the App's connections. Only the extended trust manager API available on Android N and
+ * later gives access to the handshake; the validation of a handshake without it fails.
+ */
+@RequiresApi(api = 24)
+class HostnameAwareTrustManager extends X509ExtendedTrustManager {
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket)
+            throws CertificateException {
+        SSLSession session = null;
+        if (socket instanceof SSLSocket) {
+            session = ((SSLSocket) socket).getHandshakeSession();
+        }
+        X509TrustManager trustManager = getTrustManager(session);
+        if (trustManager instanceof X509ExtendedTrustManager) {
+            ((X509ExtendedTrustManager) trustManager).checkServerTrusted(chain, authType, socket);
+        } else {
+            trustManager.checkServerTrusted(chain, authType);
+        }
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+            throws CertificateException {
+        SSLSession session = null;
+        if (engine != null) {
+            session = engine.getHandshakeSession();
+        }
+        X509TrustManager trustManager = getTrustManager(session);
+        if (trustManager instanceof X509ExtendedTrustManager) {
+            ((X509ExtendedTrustManager) trustManager).checkServerTrusted(chain, authType, engine);
+        } else {
+            trustManager.checkServerTrusted(chain, authType);
+        }
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType)
+            throws CertificateException {
+        throw new CertificateException(
+                "Certificate validation failed: the server's hostname is not available");
+    }
+
+    @NonNull
+    private static X509TrustManager getTrustManager(@Nullable SSLSession session)
+            throws CertificateException {
+        String serverHostname = (session != null) ? session.getPeerHost() : null;
+        if (serverHostname == null) {
+            throw new CertificateException(
+                    "Certificate validation failed: the server's hostname is not available");
+        }
+        // The hostname the App connected to is not validated, so that a hostname which is not a
+        // valid domain name still gets the policy of the pinned domain it belongs to, if any
+        DomainPinningPolicy serverConfig =
+                TrustKit.getInstance()
+                        .getConfiguration()
+                        .getPolicyIndex()
+                        .getPolicyForPeerHostname(serverHostname);
+        return TrustManagerBuilder.getTrustManager(serverHostname, serverConfig);
+    }
+
+    @NonNull
+    private static X509TrustManager getBaselineTrustManager() {
+        X509TrustManager baselineTrustManager = TrustManagerBuilder.baselineTrustManager;
+        if (baselineTrustManager == null) {
+            throw new IllegalStateException("TrustManagerBuilder has not been initialized");
+        }
+        return baselineTrustManager;
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket)
+            throws CertificateException {
+        getBaselineTrustManager().checkClientTrusted(chain, authType);
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+            throws CertificateException {
+        getBaselineTrustManager().checkClientTrusted(chain, authType);
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType)
+            throws CertificateException {
+        getBaselineTrustManager().checkClientTrusted(chain, authType);
+    }
+
+    @Override
+    public X509Certificate[] getAcceptedIssuers() {
+        return getBaselineTrustManager().getAcceptedIssuers();
+    }
+}
@@ -5,7 +5,6 @@ import androidx.annotation.NonNull;
 import androidx.annotation.RequiresApi;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
-import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.X509TrustManager;
 import okhttp3.Interceptor;
@@ -33,10 +32,7 @@ public class OkHttp3Helper {
     @NonNull
     public static SSLSocketFactory getSSLSocketFactory() {
         try {
-            SSLContext sslContext = SSLContext.getInstance("TLSv1.2");
-            sslContext.init(null, new X509TrustManager[] {trustManager}, null);
-
-            return sslContext.getSocketFactory();
+            return TrustManagerBuilder.newSSLContext(trustManager).getSocketFactory();
         } catch (NoSuchAlgorithmException | KeyManagementException e) {
             e.printStackTrace();
             throw new IllegalStateException("SSLSocketFactory creation failed");
@@ -1,6 +1,5 @@
 package com.datatheorem.android.trustkit.pinning;
 
-import android.net.http.X509TrustManagerExtensions;
 import android.os.Build;
 import androidx.annotation.NonNull;
 import com.datatheorem.android.trustkit.TrustKit;
@@ -31,8 +30,12 @@ class OkHttpRootTrustManager implements X509TrustManager {
             throws CertificateException {
         String host = mServerHostname.get();
         DomainPinningPolicy serverConfig =
-                TrustKit.getInstance().getConfiguration().getPolicyForHostname(host);
-        X509TrustManager trustManager = TrustKit.getInstance().getTrustManager(host);
+                TrustKit.getInstance()
+                        .getConfiguration()
+                        .getPolicyIndex()
+                        .getPolicyForHostname(host);
+        // Only resolve the policy once per handshake
+        X509TrustManager trustManager = TrustManagerBuilder.getTrustManager(host, serverConfig);
 
         // The first check is needed for compatibility with the Platform default's implementation of
         // the Trust Manager. For APIs 24 and greater, the Platform's default TrustManager states
@@ -41,7 +44,11 @@ class OkHttpRootTrustManager implements X509TrustManager {
         // X509TrustManagerExtensions class. Any API below will default to the baseline trust
         // manager.
         if (serverConfig == null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
-            new X509TrustManagerExtensions(trustManager).checkServerTrusted(chain, authType, host);
+            // The trust manager is the baseline one, whose shared wrapper TrustManagerBuilder
+            // always
+            // creates on these API levels
+            TrustManagerBuilder.getBaselineTrustManagerExtensions()
+                    .checkServerTrusted(chain, authType, host);
         } else {
             trustManager.checkServerTrusted(chain, authType);
         }
@@ -3,16 +3,18 @@ package com.datatheorem.android.trustkit.pinning;
 import android.net.http.X509TrustManagerExtensions;
 import android.os.Build;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import com.datatheorem.android.trustkit.config.DomainPinningPolicy;
+import com.datatheorem.android.trustkit.config.HostnameNormalizer;
 import com.datatheorem.android.trustkit.config.PublicKeyPin;
-import java.security.cert.Certificate;
+import com.datatheorem.android.trustkit.utils.TrustKitLog;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
-import java.util.Date;
 import java.util.List;
-import java.util.Set;
+import java.util.Random;
+import java.util.concurrent.RejectedExecutionException;
 import javax.net.ssl.X509TrustManager;
 
 @RequiresApi(api = 17)
@@ -22,8 +24,23 @@ class PinningTrustManager implements X509TrustManager {
     private final X509TrustManagerExtensions baselineTrustManager;
 
     private final String serverHostname;
+    // Certificates contain internationalized hostnames in their punycode form
+    private final String canonicalServerHostname;
     private final DomainPinningPolicy serverConfig;
 
+    // Used to pick the handshakes to validate for policies that have a validation sample rate; one
+    // per thread so that concurrent handshakes do not contend on a shared seed
+    private static final ThreadLocal<Random> validationSampler =
+            new ThreadLocal<Random>() {
+                @Override
+                protected Random initialValue() {
+                    return new Random();
+                }
+            };
+
+    // Chains that recently passed validation for this hostname; null if caching is disabled
+    @Nullable private final ValidatedChainCache validatedChainCache;
+
     /**
      * A trust manager which implements path, hostname and pinning validation for a given hostname
      * and sends pinning failure reports if validation failed.
@@ -41,57 +58,67 @@ class PinningTrustManager implements X509TrustManager {
             @NonNull String serverHostname,
             @NonNull DomainPinningPolicy serverConfig,
             @NonNull X509TrustManager baselineTrustManager) {
+        this(serverHostname, serverConfig, wrapBaselineTrustManager(baselineTrustManager), null);
+    }
+
+    /**
+     * Create a trust manager sharing an already-wrapped baseline trust manager, so that no wrapper
+     * gets created for every new connection.
+     */
+    PinningTrustManager(
+            @NonNull String serverHostname,
+            @NonNull DomainPinningPolicy serverConfig,
+            @Nullable X509TrustManagerExtensions baselineTrustManager,
+            @Nullable ValidatedChainCache validatedChainCache) {
         // Store server's information
         this.serverHostname = serverHostname;
+        this.canonicalServerHostname = HostnameNormalizer.normalize(serverHostname);
         this.serverConfig = serverConfig;
+        this.baselineTrustManager = baselineTrustManager;
+        this.validatedChainCache = validatedChainCache;
+    }
 
+    @Nullable
+    static X509TrustManagerExtensions wrapBaselineTrustManager(
+            @NonNull X509TrustManager baselineTrustManager) {
         if (Build.VERSION.SDK_INT < 17) {
             // No pinning validation at all for API level < 17
             // Because X509TrustManagerExtensions is not available
-            this.baselineTrustManager = null;
-        } else {
-            // We use the default trust manager so we can perform regular SSL validation and we wrap
-            // it in the Android-specific X509TrustManagerExtensions, which provides an API to
-            // compute the cleaned/verified server certificate chain that we eventually need for
-            // pinning validation. Also the X509TrustManagerExtensions provides a
-            // checkServerTrusted() where the hostname can be supplied, allowing it to call the
-            // (system) RootTrustManager on Android N
-            this.baselineTrustManager = new X509TrustManagerExtensions(baselineTrustManager);
+            return null;
         }
+        // We use the default trust manager so we can perform regular SSL validation and we wrap it
+        // in the Android-specific X509TrustManagerExtensions, which provides an API to compute the
+        // cleaned/verified server certificate chain that we eventually need for pinning
+        // validation. Also the X509TrustManagerExtensions provides a checkServerTrusted() where the
+        // hostname can be supplied, allowing it to call the (system) RootTrustManager on Android N
+        return new X509TrustManagerExtensions(baselineTrustManager);
     }
 
-    /**
-     * This methods gets called on Android N instead of the 2-parameter checkServerTrusted().
-     *
-     * <p>If we ever drop support for versions before Android N (unlikely), we can use this method
-     * to automatically get the hostname when the certificate chain needs to be validated, instead
-     * of having to ask for the hostname a lot earlier when the trust manager (or socket factory)
-     * gets created, making the API a lot nicer.
-     *
-     * <p>For now this is here only for documentation. See also:
-     * https://developer.android.com/reference/javax/net/ssl/X509ExtendedTrustManager.html not to be
-     * confused with X509TrustManagerExtensions!
-     */
-    /*
-    public List<X509Certificate> checkServerTrusted(X509Certificate[] chain, String authType,
-                                                    String host) throws CertificateException {
-    }*/
-
+    // The server's hostname was supplied when this trust manager got created. On Android N and
+    // later, HostnameAwareTrustManager instead gets it from the handshake being validated through
+    // the X509ExtendedTrustManager API (not to be confused with X509TrustManagerExtensions!), then
+    // calls this method on the trust manager of that hostname
     @Override
     public void checkServerTrusted(X509Certificate[] chain, String authType)
             throws CertificateException {
+        // If this exact chain was recently validated for this hostname, skip path building and
+        // pinning validation
+        if ((validatedChainCache != null)
+                && (validatedChainCache.wasValidated(serverHostname, serverConfig, chain))) {
+            return;
+        }
+
         boolean didChainValidationFail = false; // Includes path and hostname validation
         boolean didPinningValidationFail = false;
 
-        // Store the received chain so we can send it later in a report if path validation fails
-        List<X509Certificate> servedServerChain = Arrays.asList((X509Certificate[]) chain);
-        List<X509Certificate> validatedServerChain = servedServerChain;
+        // Only set if path validation succeeded
+        List<X509Certificate> validatedServerChain = null;
 
         // Then do hostname validation first
         // During the normal flow, this is done at very different times during the SSL handshake,
         // depending on the device's API level; we just do it here to ensure it is always done
         // consistently
-        if (!OkHostnameVerifier.INSTANCE.verify(serverHostname, chain[0])) {
+        if (!OkHostnameVerifier.INSTANCE.verify(canonicalServerHostname, chain[0])) {
             didChainValidationFail = true;
         }
 
@@ -115,43 +142,62 @@ class PinningTrustManager implements X509TrustManager {
             }
         }
 
-        // Before Android N, manually perform pinning validation on the verified chain if path
-        // validation succeeded. On Android N this was already taken care of by the netsec policy
-        if ((Build.VERSION.SDK_INT < 24) && (!didChainValidationFail)) {
-
-            boolean hasPinningPolicyExpired =
-                    (serverConfig.getExpirationDate() != null)
-                            && (serverConfig.getExpirationDate().compareTo(new Date()) < 0);
+        // Policies that do not enforce pinning may only evaluate the pins of a fraction of the
+        // handshakes; a failure that was already detected still gets reported
+        if ((!serverConfig.shouldEnforcePinning())
+                && (!didChainValidationFail)
+                && (!didPinningValidationFail)
+                && (!isHandshakeSampled())) {
+            return;
+        }
 
-            // Only do pinning validation if the policy has not expired
-            if (!hasPinningPolicyExpired) {
-                didPinningValidationFail =
-                        !isPinInChain(validatedServerChain, serverConfig.getPublicKeyPins());
+        if ((!serverConfig.shouldEnforcePinning()) && (serverConfig.shouldValidateInBackground())) {
+            // The result of pinning validation cannot block the connection; do it and send the
+            // report on a background thread so that the handshake can proceed right away
+            final X509Certificate[] servedChain = chain.clone();
+            final List<X509Certificate> finalValidatedServerChain = validatedServerChain;
+            final boolean finalDidChainValidationFail = didChainValidationFail;
+            final boolean finalDidPinningValidationFail = didPinningValidationFail;
+            try {
+                TrustManagerBuilder.getBackgroundValidationExecutor()
+                        .execute(
+                                new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        validatePinsAndReport(
+                                                servedChain,
+                                                finalValidatedServerChain,
+                                                finalDidChainValidationFail,
+                                                finalDidPinningValidationFail);
+                                    }
+                                });
+            } catch (RejectedExecutionException e) {
+                TrustKitLog.w(
+                        "Too many pending validations; skipped validation for " + serverHostname);
             }
-        }
 
-        // Send a pinning failure report if needed
-        if (didChainValidationFail || didPinningValidationFail) {
-            PinningValidationResult validationResult = PinningValidationResult.FAILED;
             if (didChainValidationFail) {
-                // Hostname or path validation failed - not a pinning error
-                validationResult = PinningValidationResult.FAILED_CERTIFICATE_CHAIN_NOT_TRUSTED;
+                throw new CertificateException(
+                        "Certificate validation failed for " + serverHostname);
             }
-            TrustManagerBuilder.getReporter()
-                    .pinValidationFailed(
-                            serverHostname,
-                            0,
-                            servedServerChain,
-                            validatedServerChain,
-                            serverConfig,
-                            validationResult);
+            return;
         }
 
+        didPinningValidationFail =
+                validatePinsAndReport(
+                        chain,
+                        validatedServerChain,
+                        didChainValidationFail,
+                        didPinningValidationFail);
+
         // Throw an exception if needed
         if (didChainValidationFail) {
             throw new CertificateException("Certificate validation failed for " + serverHostname);
         } else if ((didPinningValidationFail) && (serverConfig.shouldEnforcePinning())) {
             // Pinning failed and is enforced - throw an exception to cancel the handshake
+            if (validatedServerChain == null) {
+                validatedServerChain = Arrays.asList(chain);
+            }
             StringBuilder errorBuilder =
                     new StringBuilder()
                             .append("Pin verification failed")
@@ -161,29 +207,114 @@ class PinningTrustManager implements X509TrustManager {
                 errorBuilder.append(" ");
             }
             errorBuilder.append("\n  Peer certificate chain: ");
-            for (Certificate certificate : validatedServerChain) {
+            // Do not go through the pin cache as the chain may not be one we want to remember
+            List<PublicKeyPin> chainPins = PublicKeyPin.fromCertificateChain(validatedServerChain);
+            for (int i = 0; i < validatedServerChain.size(); i++) {
                 errorBuilder
                         .append("\n    ")
-                        .append(new PublicKeyPin(certificate))
+                        .append(chainPins.get(i))
                         .append(" - ")
-                        .append(((X509Certificate) certificate).getSubjectDN());
+                        .append(validatedServerChain.get(i).getSubjectDN());
             }
             throw new CertificateException(errorBuilder.toString());
         }
     }
 
-    private static boolean isPinInChain(
-            List<X509Certificate> verifiedServerChain, Set<PublicKeyPin> configuredPins) {
-        boolean wasPinFound = false;
-        for (Certificate certificate : verifiedServerChain) {
-            PublicKeyPin certificatePin = new PublicKeyPin(certificate);
-            if (configuredPins.contains(certificatePin)) {
+    /**
+     * Finish validating the server's chain once path and hostname validation were done: perform
+     * pinning validation if needed, remember the chain if validation succeeded, or send a pin
+     * failure report if validation failed.
+     *
+     * @return true if pinning validation failed.
+     */
+    private boolean validatePinsAndReport(
+            @NonNull X509Certificate[] chain,
+            @Nullable List<X509Certificate> validatedServerChain,
+            boolean didChainValidationFail,
+            boolean didPinningValidationFail) {
+        // Before Android N, manually perform pinning validation on the verified chain if path
+        // validation succeeded. On Android N this was already taken care of by the netsec policy,
+        // except for hostname patterns which the netsec policy does not support. A pin-set for a
+        // parent domain may still make the netsec policy reject the chain of a hostname pattern,
+        // in which case there is no verified chain and its verdict is kept
+        if (((Build.VERSION.SDK_INT < 24) || serverConfig.isHostnamePattern())
+                && (!didChainValidationFail)
+                && (validatedServerChain != null)) {
+            // Only do pinning validation if the policy has not expired
+            if (!serverConfig.hasExpired()) {
+                didPinningValidationFail = !isPinInChain(validatedServerChain, serverConfig);
+            }
+        }
+
+        if ((!didChainValidationFail) && (!didPinningValidationFail)) {
+            // Validation succeeded; this path should not allocate anything beyond what the system's
+            // validation does, as it runs for every new connection
+            if ((validatedChainCache != null) && (validatedServerChain != null)) {
+                validatedChainCache.putValidated(
+                        serverHostname, serverConfig, chain, validatedServerChain);
+            }
+            return false;
+        }
+
+        // Validation failed - store the received chain so we can send it in a report
+        List<X509Certificate> servedServerChain = Arrays.asList(chain);
+        if (validatedServerChain == null) {
+            // Path validation failed so there is no verified chain
+            validatedServerChain = servedServerChain;
+        }
+
+        // Send a pinning failure report
+        PinningValidationResult validationResult = PinningValidationResult.FAILED;
+        if (didChainValidationFail) {
+            // Hostname or path validation failed - not a pinning error
+            validationResult = PinningValidationResult.FAILED_CERTIFICATE_CHAIN_NOT_TRUSTED;
+        }
+        TrustManagerBuilder.getReporter()
+                .pinValidationFailed(
+                        serverHostname,
+                        0,
+                        servedServerChain,
+                        validatedServerChain,
+                        serverConfig,
+                        validationResult);
+        return didPinningValidationFail;
+    }
+
+    // A handshake that is not sampled skips pinning validation, so it never gets a pin failure
+    // report even if its pins do not match
+    private boolean isHandshakeSampled() {
+        float sampleRate = serverConfig.getValidationSampleRate();
+        return (sampleRate >= 1) || (validationSampler.get().nextFloat() < sampleRate);
+    }
+
+    static boolean isPinInChain(
+            List<X509Certificate> verifiedServerChain, DomainPinningPolicy serverConfig) {
+        int chainLength = verifiedServerChain.size();
+        if (chainLength == 0) {
+            return false;
+        }
+
+        // Pins are usually found at the same position in the chain, typically the intermediate
+        // certificate, so first look where a pin was found last time, then walk up from the leaf
+        int firstPosition = Math.min(serverConfig.getLastMatchedChainPosition(), chainLength - 1);
+        // Do not use an iterator so that no allocation happens
+        for (int i = 0; i < chainLength; i++) {
+            int position;
+            if (i == 0) {
+                position = firstPosition;
+            } else if (i <= firstPosition) {
+                position = i - 1;
+            } else {
+                position = i;
+            }
+            PublicKeyPin certificatePin =
+                    CertificatePinCache.getPin(verifiedServerChain.get(position));
+            if (serverConfig.matchPin(certificatePin, position)) {
                 // Pinning validation succeeded
-                wasPinFound = true;
-                break;
+                return true;
             }
         }
-        return wasPinFound;
+        return false;
     }
 
     @Override
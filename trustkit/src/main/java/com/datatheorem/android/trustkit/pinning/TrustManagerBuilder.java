@@ -1,39 +1,116 @@
 package com.datatheorem.android.trustkit.pinning;
 
+import android.net.http.X509TrustManagerExtensions;
 import android.os.Build;
+import android.util.LruCache;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 import com.datatheorem.android.trustkit.TrustKit;
+import com.datatheorem.android.trustkit.TrustKitOptions;
 import com.datatheorem.android.trustkit.config.DomainPinningPolicy;
+import com.datatheorem.android.trustkit.config.HostnameNormalizer;
 import com.datatheorem.android.trustkit.reporting.BackgroundReporter;
 import java.io.IOException;
+import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 
 public class TrustManagerBuilder {
 
+    // One entry per pinned hostname; creating a trust manager again after an eviction is cheap, so
+    // this only needs to cover the hostnames in use at the same time, while staying bounded when
+    // a policy including subdomains matches many different hostnames
+    private static final int MAX_CACHED_TRUST_MANAGERS = 32;
+
     // The trust manager we will use to perform the default SSL validation
     protected static X509TrustManager baselineTrustManager = null;
 
+    // The baseline trust manager wrapped for use by every PinningTrustManager
+    @Nullable protected static X509TrustManagerExtensions baselineTrustManagerExtensions = null;
+
     // Pinning validation can be disabled if debug-overrides is set
     protected static boolean shouldOverridePins = false;
 
     // The reporter that will send pinning failure reports
     protected static BackgroundReporter backgroundReporter = null;
 
+    // The chains recently validated for pinned domains; null if caching was not enabled
+    @Nullable protected static ValidatedChainCache validatedChainCache = null;
+
+    // The protocol of the SSLContext created for pinned connections
+    @NonNull
+    protected static String sslContextProtocol = TrustKitOptions.DEFAULT_SSL_CONTEXT_PROTOCOL;
+
+    // The trust managers returned for pinned hostnames, keyed by canonical hostname
+    protected static final LruCache<String, CachedTrustManager> pinningTrustManagers =
+            new LruCache<>(MAX_CACHED_TRUST_MANAGERS);
+
+    // Validations that a report-only policy moved off the handshake thread; further ones are
+    // rejected once this many are pending, as they can only produce reports
+    private static final int MAX_PENDING_BACKGROUND_VALIDATIONS = 64;
+
+    // A single thread runs the background validations, instead of the App's shared AsyncTask pool;
+    // it goes away when there is nothing left to validate
+    private static final ThreadPoolExecutor backgroundValidationExecutor =
+            new ThreadPoolExecutor(
+                    1,
+                    1,
+                    30,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(MAX_PENDING_BACKGROUND_VALIDATIONS),
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(@NonNull Runnable runnable) {
+                            Thread thread = new Thread(runnable, "TrustKit-background-validation");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+
+    static {
+        backgroundValidationExecutor.allowCoreThreadTimeOut(true);
+    }
+
     public static void initializeBaselineTrustManager(
             @Nullable Set<Certificate> debugCaCerts,
             boolean debugOverridePins,
             @NonNull BackgroundReporter reporter)
             throws CertificateException, NoSuchAlgorithmException, KeyStoreException, IOException {
+        initializeBaselineTrustManager(
+                debugCaCerts, debugOverridePins, reporter, new TrustKitOptions.Builder().build());
+    }
+
+    public static void initializeBaselineTrustManager(
+            @Nullable Set<Certificate> debugCaCerts,
+            boolean debugOverridePins,
+            @NonNull BackgroundReporter reporter,
+            @NonNull TrustKitOptions options)
+            throws CertificateException, NoSuchAlgorithmException, KeyStoreException, IOException {
         if (baselineTrustManager != null) {
             throw new IllegalStateException("TrustManagerBuilder has already been initialized");
         }
         baselineTrustManager = SystemTrustManager.getInstance();
+        sslContextProtocol = options.getSslContextProtocol();
+
+        // Always start from empty caches so that verdicts never outlive the configuration
+        pinningTrustManagers.evictAll();
+        validatedChainCache = null;
+        if (options.getValidatedChainCacheTtlMillis() > 0) {
+            validatedChainCache =
+                    new ValidatedChainCache(options.getValidatedChainCacheTtlMillis());
+        }
 
         if (Build.VERSION.SDK_INT < 17) {
             // No pinning validation or debug overrides
@@ -46,6 +123,8 @@ public class TrustManagerBuilder {
             baselineTrustManager = DebugOverridesTrustManager.getInstance(debugCaCerts);
         }
 
+        baselineTrustManagerExtensions =
+                PinningTrustManager.wrapBaselineTrustManager(baselineTrustManager);
         backgroundReporter = reporter;
     }
 
@@ -61,13 +140,95 @@ public class TrustManagerBuilder {
 
         // Get the pinning policy for this hostname
         DomainPinningPolicy serverConfig =
-                TrustKit.getInstance().getConfiguration().getPolicyForHostname(serverHostname);
+                TrustKit.getInstance()
+                        .getConfiguration()
+                        .getPolicyIndex()
+                        .getPolicyForHostname(serverHostname);
+        return getTrustManager(serverHostname, serverConfig);
+    }
+
+    /** Same as {@link #getTrustManager(String)}, for callers that already looked up the policy. */
+    static X509TrustManager getTrustManager(
+            @NonNull String serverHostname, @Nullable DomainPinningPolicy serverConfig) {
+        if (baselineTrustManager == null) {
+            throw new IllegalStateException("TrustManagerBuilder has not been initialized");
+        }
+        if (Build.VERSION.SDK_INT < 17) {
+            // No pinning validation at all for API level before 17
+            // Because X509TrustManagerExtensions is not available
+            return baselineTrustManager;
+        }
+
         if ((serverConfig == null) || (shouldOverridePins)) {
             // Domain is NOT pinned or there is a debug override - only do baseline validation
             return baselineTrustManager;
-        } else {
-            return new PinningTrustManager(serverHostname, serverConfig, baselineTrustManager);
         }
+
+        // The trust managers do not keep any state about the connections they validated, so the
+        // same one can be used for every connection to this hostname. Each server gets a single
+        // entry whatever the hostname's spelling, but a trust manager is only reused for the same
+        // spelling, as it is the hostname sent in pin failure reports
+        String canonicalServerHostname = HostnameNormalizer.normalize(serverHostname);
+        CachedTrustManager cachedTrustManager = pinningTrustManagers.get(canonicalServerHostname);
+        if ((cachedTrustManager != null)
+                && (cachedTrustManager.policy == serverConfig)
+                && (cachedTrustManager.hostname.equals(serverHostname))) {
+            return cachedTrustManager.trustManager;
+        }
+
+        X509TrustManager trustManager =
+                new PinningTrustManager(
+                        serverHostname,
+                        serverConfig,
+                        baselineTrustManagerExtensions,
+                        validatedChainCache);
+        pinningTrustManagers.put(
+                canonicalServerHostname,
+                new CachedTrustManager(serverHostname, serverConfig, trustManager));
+        return trustManager;
+    }
+
+    /**
+     * Retrieve the baseline trust manager wrapped in an {@link X509TrustManagerExtensions}, which
+     * is shared by all the trust managers returned by this class.
+     */
+    @Nullable
+    static X509TrustManagerExtensions getBaselineTrustManagerExtensions() {
+        return baselineTrustManagerExtensions;
+    }
+
+    /**
+     * Retrieve a trust manager for connections to any server, which applies the pinning policy of
+     * the server's hostname as found in the handshake being validated.
+     */
+    @RequiresApi(api = 24)
+    public static X509TrustManager getHostnameAwareTrustManager() {
+        if (baselineTrustManager == null) {
+            throw new IllegalStateException("TrustManagerBuilder has not been initialized");
+        }
+        return new HostnameAwareTrustManager();
+    }
+
+    /**
+     * Create an {@code SSLContext} for pinned connections that uses the supplied trust manager, and
+     * the protocol configured in the {@link TrustKitOptions}.
+     */
+    @NonNull
+    public static SSLContext newSSLContext(@NonNull X509TrustManager trustManager)
+            throws NoSuchAlgorithmException, KeyManagementException {
+        SSLContext sslContext = SSLContext.getInstance(sslContextProtocol);
+        sslContext.init(null, new TrustManager[] {trustManager}, null);
+        return sslContext;
+    }
+
+    /**
+     * Retrieve the executor that runs the pinning validation of report-only policies that validate
+     * in the background. It throws a {@code RejectedExecutionException} when too many validations
+     * are pending.
+     */
+    @NonNull
+    static Executor getBackgroundValidationExecutor() {
+        return backgroundValidationExecutor;
     }
 
     /** Retrieve the background reporter to be used for sending pinning validation reports. */
@@ -77,4 +238,21 @@ public class TrustManagerBuilder {
         }
         return backgroundReporter;
     }
+
+    static final class CachedTrustManager {
+        // The hostname as supplied by the App
+        @NonNull private final String hostname;
+        // Compared by identity so that a new configuration never reuses a previous trust manager
+        @NonNull private final DomainPinningPolicy policy;
+        @NonNull private final X509TrustManager trustManager;
+
+        CachedTrustManager(
+                @NonNull String hostname,
+                @NonNull DomainPinningPolicy policy,
+                @NonNull X509TrustManager trustManager) {
+            this.hostname = hostname;
+            this.policy = policy;
+            this.trustManager = trustManager;
+        }
+    }
 }
@@ -0,0 +1,166 @@
+package com.datatheorem.android.trustkit.pinning;
+
+import android.util.LruCache;
+import androidx.annotation.NonNull;
+import com.datatheorem.android.trustkit.config.DomainPinningPolicy;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A bounded cache of the certificate chains that recently passed path, hostname and pinning
+ * validation for a given hostname.
+ *
+ * <p>Entries are keyed by hostname, pinning policy and the exact chain served by the server, so a
+ * cached verdict is only reused when the server sends back the same certificates; two certificates
+ * are equal when they have the same DER encoding. Only successful validations are cached, and an
+ * entry expires at the earliest of its TTL, the expiration of any certificate in the validated
+ * chain and the expiration date of the pinning policy.
+ *
+ * <p>Looking up a chain does not allocate, provided that the certificates cache their hash code and
+ * compare their encoding without copying it, as the platform's certificates do.
+ *
+ * <p>There is no equivalent cache keyed by TLS session: the platform does not call the trust
+ * manager at all when a session is resumed, so a resumed handshake has no validation left to skip.
+ */
+final class ValidatedChainCache {
+
+    // One entry per pinned hostname and served chain; a server behind a load balancer can serve a
+    // few different leaf certificates. Each entry keeps the served certificates alive, so this is
+    // kept smaller than the pin cache
+    private static final int MAX_ENTRIES = 32;
+
+    private final long ttlMillis;
+    private final LruCache<Key, Entry> cache = new LruCache<>(MAX_ENTRIES);
+
+    // A key reused by each thread for its lookups, so that looking up a chain does not allocate
+    private final ThreadLocal<Key> lookupKeys =
+            new ThreadLocal<Key>() {
+                @Override
+                protected Key initialValue() {
+                    return new Key();
+                }
+            };
+
+    ValidatedChainCache(long ttlMillis) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("The TTL must be positive");
+        }
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Check if the supplied chain, as served by the server, was successfully validated recently for
+     * this hostname and pinning policy.
+     */
+    boolean wasValidated(
+            @NonNull String serverHostname,
+            @NonNull DomainPinningPolicy serverConfig,
+            @NonNull X509Certificate[] servedServerChain) {
+        Key lookupKey = lookupKeys.get();
+        lookupKey.set(serverHostname, serverConfig, servedServerChain);
+        Entry entry;
+        try {
+            entry = cache.get(lookupKey);
+        } finally {
+            // Do not keep the chain alive
+            lookupKey.set(null, null, null);
+        }
+        if (entry == null) {
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        if ((now >= entry.expiresAt) || (now < entry.validatedAt)) {
+            // Expired, or the clock went backwards; validate the chain again
+            cache.remove(entry.key);
+            return false;
+        }
+        return true;
+    }
+
+    /** Remember that the supplied chain, as served by the server, was successfully validated. */
+    void putValidated(
+            @NonNull String serverHostname,
+            @NonNull DomainPinningPolicy serverConfig,
+            @NonNull X509Certificate[] servedServerChain,
+            @NonNull List<X509Certificate> validatedServerChain) {
+        long now = System.currentTimeMillis();
+        long expiresAt = now + ttlMillis;
+        for (X509Certificate certificate : validatedServerChain) {
+            expiresAt = Math.min(expiresAt, certificate.getNotAfter().getTime());
+        }
+        Date policyExpirationDate = serverConfig.getExpirationDate();
+        if ((policyExpirationDate != null) && (!serverConfig.hasExpired())) {
+            expiresAt = Math.min(expiresAt, policyExpirationDate.getTime());
+        }
+        if (expiresAt > now) {
+            Key key = new Key();
+            // Take a copy so that changes to the supplied array cannot affect lookups
+            key.set(serverHostname, serverConfig, servedServerChain.clone());
+            cache.put(key, new Entry(key, now, expiresAt));
+        }
+    }
+
+    /** Return the number of times a validated chain was found in the cache. */
+    int getHitCount() {
+        return cache.hitCount();
+    }
+
+    /** Return the number of times a chain had to be validated. */
+    int getMissCount() {
+        return cache.missCount();
+    }
+
+    void clear() {
+        cache.evictAll();
+    }
+
+    private static final class Key {
+        private String hostname;
+        // Compared by identity so that a new configuration never reuses a previous verdict
+        private DomainPinningPolicy policy;
+        private X509Certificate[] chain;
+        private int hashCode;
+
+        void set(String hostname, DomainPinningPolicy policy, X509Certificate[] chain) {
+            this.hostname = hostname;
+            this.policy = policy;
+            this.chain = chain;
+            this.hashCode =
+                    (hostname == null) ? 0 : 31 * hostname.hashCode() + Arrays.hashCode(chain);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return (policy == other.policy)
+                    && hostname.equals(other.hostname)
+                    && Arrays.equals(chain, other.chain);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class Entry {
+        @NonNull private final Key key;
+        private final long validatedAt;
+        private final long expiresAt;
+
+        Entry(@NonNull Key key, long validatedAt, long expiresAt) {
+            this.key = key;
+            this.validatedAt = validatedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
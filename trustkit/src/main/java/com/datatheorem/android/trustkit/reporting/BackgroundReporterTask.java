@@ -4,6 +4,7 @@ import android.os.AsyncTask;
 import android.util.Base64;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import com.datatheorem.android.trustkit.TrustKitOptions;
 import com.datatheorem.android.trustkit.pinning.SystemTrustManager;
 import com.datatheorem.android.trustkit.utils.TrustKitLog;
 import java.io.BufferedOutputStream;
@@ -112,7 +113,8 @@ class BackgroundReporterTask extends AsyncTask<Object, Void, Integer> {
     private static SSLSocketFactory getSystemSSLSocketFactory() {
         SSLContext context;
         try {
-            context = SSLContext.getInstance("TLSv1.2");
+            // Reports are not pinned, so always use the best TLS versions supported by the device
+            context = SSLContext.getInstance(TrustKitOptions.DEFAULT_SSL_CONTEXT_PROTOCOL);
         } catch (NoSuchAlgorithmException e) {
             throw new IllegalStateException("Should never happen");
         }
@@ -1,6 +1,10 @@
 package com.datatheorem.android.trustkit.reporting;
 
 import androidx.annotation.NonNull;
+import com.datatheorem.android.trustkit.utils.Sha256Digester;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
@@ -10,6 +14,8 @@ import java.util.Set;
 // Very basic implementation to rate-limit identical reports to once a day
 class ReportRateLimiter {
 
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     private static final long MAX_SECONDS_BETWEEN_CACHE_RESET = 3600 * 24;
     private static final Set<List<Object>> reportsCache = new HashSet<>();
     protected static Date lastReportsCacheResetDate = new Date();
@@ -29,7 +35,8 @@ class ReportRateLimiter {
         cacheEntry.add(report.getNotedHostname());
         cacheEntry.add(report.getServerHostname());
         cacheEntry.add(report.getServerPort());
-        cacheEntry.add(report.getValidatedCertificateChainAsPem());
+        // Only keep a fingerprint of the chain as the cache is kept for up to 24 hours
+        cacheEntry.add(fingerprintCertificateChain(report.getValidatedCertificateChainAsPem()));
         cacheEntry.add(report.getValidationResult());
 
         boolean shouldRateLimitReport = reportsCache.contains(cacheEntry);
@@ -38,4 +45,15 @@ class ReportRateLimiter {
         }
         return shouldRateLimitReport;
     }
+
+    @NonNull
+    private static ByteBuffer fingerprintCertificateChain(
+            @NonNull List<String> certificateChainAsPem) {
+        MessageDigest digest = Sha256Digester.getInstance();
+        for (String certificateAsPem : certificateChainAsPem) {
+            digest.update(certificateAsPem.getBytes(UTF_8));
+        }
+        // ByteBuffer implements equals() and hashCode() based on its content
+        return ByteBuffer.wrap(digest.digest());
+    }
 }
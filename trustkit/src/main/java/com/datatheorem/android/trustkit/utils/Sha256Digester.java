@@ -0,0 +1,43 @@
+package com.datatheorem.android.trustkit.utils;
+
+import androidx.annotation.NonNull;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Thread-confined SHA-256 digesters, so that computing pins and fingerprints does not go through a
+ * security provider lookup every time.
+ *
+ * <p>The digester returned by {@link #getInstance()} belongs to the calling thread and must not be
+ * handed over to another thread, or kept across calls to other methods of this class.
+ */
+public final class Sha256Digester {
+
+    private static final ThreadLocal<MessageDigest> digesters =
+            new ThreadLocal<MessageDigest>() {
+                @Override
+                protected MessageDigest initialValue() {
+                    try {
+                        return MessageDigest.getInstance("SHA-256");
+                    } catch (NoSuchAlgorithmException e) {
+                        throw new IllegalStateException("Should never happen");
+                    }
+                }
+            };
+
+    private Sha256Digester() {}
+
+    /** Retrieve the calling thread's SHA-256 digester, reset and ready to be used. */
+    @NonNull
+    public static MessageDigest getInstance() {
+        MessageDigest digest = digesters.get();
+        digest.reset();
+        return digest;
+    }
+
+    /** Compute the SHA-256 hash of the supplied data. */
+    @NonNull
+    public static byte[] digest(@NonNull byte[] data) {
+        return getInstance().digest(data);
+    }
+}
@@ -1,6 +1,7 @@
 package com.datatheorem.android.trustkit
 
 import java.net.URL
+import java.util.concurrent.TimeUnit
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertNull
 import org.junit.Assert.assertTrue
@@ -14,6 +15,31 @@ class TrustKitOptionsTest {
 
         assertNull(options.defaultReportUrl)
         assertTrue(options.defaultReportHeaders.isEmpty())
+        assertEquals(0L, options.validatedChainCacheTtlMillis)
+        assertEquals(TrustKitOptions.DEFAULT_SSL_CONTEXT_PROTOCOL, options.sslContextProtocol)
+    }
+
+    @Test
+    fun sslContextProtocol() {
+        val options = TrustKitOptions.Builder().setSslContextProtocol("TLSv1.2").build()
+
+        assertEquals("TLSv1.2", options.sslContextProtocol)
+
+        expectException<IllegalArgumentException> {
+            TrustKitOptions.Builder().setSslContextProtocol("NotAProtocol")
+        }
+    }
+
+    @Test
+    fun validatedChainCacheTtl() {
+        val options =
+            TrustKitOptions.Builder().setValidatedChainCacheTtl(5, TimeUnit.MINUTES).build()
+
+        assertEquals(300_000L, options.validatedChainCacheTtlMillis)
+
+        expectException<IllegalArgumentException> {
+            TrustKitOptions.Builder().setValidatedChainCacheTtl(-1, TimeUnit.SECONDS)
+        }
     }
 
     @Test